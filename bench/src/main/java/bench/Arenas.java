@@ -0,0 +1,90 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import game.Action;
+import game.RandomInputSource;
+import game.SimulationEngine;
+import jet.Jet;
+import jet.ProjectilePool;
+import learn.JetTrainer;
+import learn.MyFeatureGenerator;
+import learn.WorldSnapshot;
+import weka.classifiers.trees.RandomForest;
+
+/**
+ *Builds the game states, Samples and trained JetTrainers which benchmarks run against. Samples are
+ *recorded from games played by a RandomInputSource, labeled as SimulationEngine labels them.
+ */
+final class Arenas {
+
+	private Arenas() {}
+
+	/**
+	 * Return a JetTrainer with capacity for capacity Samples which holds capacity recorded Samples and
+	 * has been trained on them
+	 */
+	static JetTrainer trainedJetTrainer(int capacity, long seed) throws Exception {
+		JetTrainer jt = new JetTrainer(new MyFeatureGenerator(), new RandomForest(), capacity);
+		record(jt, capacity, seed);
+		jt.train().get();
+		return jt;
+	}
+
+	/**
+	 * Add n Samples recorded from a game played by a RandomInputSource to jt
+	 */
+	static void record(JetTrainer jt, int n, long seed) {
+		RandomInputSource input = new RandomInputSource(seed, 200);
+		SimulationEngine engine = new SimulationEngine(new SampleSink(), input);
+		WorldSnapshot world = new WorldSnapshot();
+		for (int k=0; k<n; ++k) {
+			engine.step();
+			Jet user = engine.getUserJet();
+			int action = Action.fromKeys(input.isUp(), input.isDown(), input.isLeft(), input.isRight());
+			world.build(engine.getJets());
+			jt.addSample(world, user.getId(), Action.relative(action, user.angleToOrigin()));
+		}
+	}
+
+	/**
+	 * Add projectiles fired by Jet owner of team from the edge of the arena towards random points inside it
+	 * until pool holds count projectiles. Enemy projectiles only end rounds in which the user loses,
+	 * which never start a training.
+	 */
+	static void fill(ProjectilePool pool, int count, int owner, int team, Random r) {
+		int R = SimulationEngine.ARENA_RADIUS;
+		while (pool.size() < count) {
+			double from = 2 * Math.PI * r.nextDouble();
+			double x = R * Math.cos(from), y = R * Math.sin(from);
+			double tx = R * (2 * r.nextDouble() - 1) / 2, ty = R * (2 * r.nextDouble() - 1) / 2;
+			double d = Math.sqrt((tx - x) * (tx - x) + (ty - y) * (ty - y));
+			pool.add(owner, team, x, y, (tx - x) / d, (ty - y) / d);
+		}
+	}
+
+	/**
+	 * A JetTrainer which discards its Samples at the end of every round instead of training, so that
+	 * background training does not run during a benchmark
+	 */
+	static class SampleSink extends JetTrainer {
+
+		SampleSink() {
+			super(new MyFeatureGenerator(), new RandomForest(), 10000);
+		}
+
+		@Override
+		public Future<?> train() {
+			flushSampleBuffer();
+			FutureTask<Object> done = new FutureTask<Object>(new Runnable() {
+				@Override
+				public void run() {}
+			}, null);
+			done.run();
+			return done;
+		}
+	}
+
+}
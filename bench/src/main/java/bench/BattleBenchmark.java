@@ -0,0 +1,55 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.RandomInputSource;
+import game.SelfPlay;
+import game.SimulationEngine;
+
+/**
+ *Time of one SimulationEngine tick in large battles of jets Jets across four teams, driven by a
+ *RandomInputSource. Enemy Jets are either left idle, which measures movement, firing and collisions
+ *alone, or moved by a trained JetTrainer, which adds feature extraction and prediction for every Jet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BattleBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int jets;
+
+	@Param({"idle", "trained"})
+	public String policy;
+
+	private SimulationEngine engine;
+
+	@Setup
+	public void setup() throws Exception {
+		engine = new SimulationEngine(new Arenas.SampleSink(), SelfPlay.IDLE, new RandomInputSource(2, 200), jets, 4);
+		if (policy.equals("trained")) engine.setPolicy(Arenas.trainedJetTrainer(2000, 1));
+		engine.step(1000);
+	}
+
+	@Benchmark
+	public long tick() {
+		engine.step();
+		return engine.getTotalTicks();
+	}
+
+}
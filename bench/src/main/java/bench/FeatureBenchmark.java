@@ -0,0 +1,89 @@
+package bench;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.RandomInputSource;
+import game.SimulationEngine;
+import jet.Jet;
+import learn.CompositeFeatureGenerator;
+import learn.DensityFeatureGenerator;
+import learn.MyFeatureGenerator;
+import learn.WorldSnapshot;
+
+/**
+ *Time of building a WorldSnapshot and generating the features of MyFeatureGenerator from it for one
+ *Jet and for all enemy Jets, and of a CompositeFeatureGenerator which adds a DensityFeatureGenerator,
+ *on a frozen game state with a given number of enemy projectiles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeatureBenchmark {
+
+	@Param({"0", "10", "100", "1000"})
+	public int projectiles;
+
+	private MyFeatureGenerator fg;
+	private CompositeFeatureGenerator composite;
+	private WorldSnapshot world;
+	private List<Jet> jets;
+	private int user;
+	private int[] enemies;
+	private double[][] features;
+
+	@Setup
+	public void setup() {
+		SimulationEngine engine = new SimulationEngine(new Arenas.SampleSink(), new RandomInputSource(1, 200));
+		engine.step(50);
+		Arenas.fill(engine.getProjectiles(), projectiles, 1, 1, new Random(1));
+		fg = new MyFeatureGenerator();
+		composite = new CompositeFeatureGenerator(new MyFeatureGenerator(), new DensityFeatureGenerator(WorldSnapshot.DEFAULT_CELL_SIZE));
+		world = new WorldSnapshot();
+		jets = engine.getJets();
+		user = engine.getUserJet().getId();
+		enemies = new int[jets.size() - 1];
+		for (int i=0, n=0; i<jets.size(); ++i) {
+			if (i != user) enemies[n++] = i;
+		}
+		features = new double[enemies.length][composite.getNumFeatures()];
+	}
+
+	@Benchmark
+	public double[] generate() {
+		world.build(jets);
+		fg.generate(world, user, features[0], 0);
+		return features[0];
+	}
+
+	@Benchmark
+	public double[][] generateBatch() {
+		world.build(jets);
+		for (int k=0; k<enemies.length; ++k) fg.generate(world, enemies[k], features[k], 0);
+		return features;
+	}
+
+	@Benchmark
+	public double[][] generateComposite() {
+		world.build(jets);
+		for (int k=0; k<enemies.length; ++k) composite.generate(world, enemies[k], features[k], 0);
+		return features;
+	}
+
+}
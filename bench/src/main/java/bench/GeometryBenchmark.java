@@ -0,0 +1,113 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.SimulationEngine;
+import jet.Geometry;
+import jet.ProjectilePool;
+
+/**
+ *Time of the distance computations of a tick over n projectiles, done one projectile at a time as before
+ *and in batches with the Geometry kernels: the squared distances from a Jet used to find the nearest
+ *projectiles, the projectiles hitting a Jet, and the projectiles which left the arena.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+
+	@Param({"16", "256", "4096"})
+	public int n;
+
+	private double[] xs, ys, out;
+	private double x, y;
+	private double hitRadius, maxRadius;
+
+	@Setup
+	public void setup() {
+		ProjectilePool pool = new ProjectilePool(SimulationEngine.PROJECTILE_RADIUS, n);
+		Arenas.fill(pool, n, 1, 1, new Random(1));
+		Random r = new Random(2);
+		xs = new double[n];
+		ys = new double[n];
+		out = new double[n];
+
+		//Spread projectiles across the arena and slightly beyond it
+		for (int i=0; i<n; ++i) {
+			double scale = 1.1 * r.nextDouble();
+			xs[i] = scale * pool.getX(i);
+			ys[i] = scale * pool.getY(i);
+		}
+		x = 40;
+		y = -25;
+		hitRadius = SimulationEngine.JET_RADIUS + SimulationEngine.PROJECTILE_RADIUS;
+		maxRadius = SimulationEngine.ARENA_RADIUS + SimulationEngine.PROJECTILE_RADIUS;
+	}
+
+	@Benchmark
+	public double[] distancesScalar() {
+		for (int i=0; i<n; ++i) out[i] = Math.sqrt(Math.pow(xs[i] - x, 2) + Math.pow(ys[i] - y, 2));
+		return out;
+	}
+
+	@Benchmark
+	public double[] distancesBatch() {
+		Geometry.squaredDistances(x, y, xs, ys, n, out);
+		return out;
+	}
+
+	@Benchmark
+	public int hitsScalar() {
+		int hits = 0;
+		for (int i=0; i<n; ++i) {
+			if (Math.sqrt(Math.pow(xs[i] - x, 2) + Math.pow(ys[i] - y, 2)) < hitRadius) hits += 1;
+		}
+		return hits;
+	}
+
+	@Benchmark
+	public int hitsBatch() {
+		Geometry.squaredDistances(x, y, xs, ys, n, out);
+		int hits = 0;
+		for (int i=0; i<n; ++i) {
+			if (Geometry.within(out[i], hitRadius)) hits += 1;
+		}
+		return hits;
+	}
+
+	@Benchmark
+	public int lostScalar() {
+		int lost = 0;
+		for (int i=0; i<n; ++i) {
+			if (Math.sqrt(xs[i] * xs[i] + ys[i] * ys[i]) > maxRadius) lost += 1;
+		}
+		return lost;
+	}
+
+	@Benchmark
+	public int lostBatch() {
+		Geometry.squaredNorms(xs, ys, n, out);
+		int lost = 0;
+		for (int i=0; i<n; ++i) {
+			if (Geometry.beyond(out[i], maxRadius)) lost += 1;
+		}
+		return lost;
+	}
+
+}
@@ -0,0 +1,80 @@
+package bench;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.RandomInputSource;
+import game.SimulationEngine;
+import jet.Jet;
+import learn.JetTrainer;
+import learn.MyFeatureGenerator;
+import learn.WorldSnapshot;
+import weka.classifiers.trees.RandomForest;
+
+/**
+ *Latency distribution of JetTrainer.getAction for one enemy Jet and of getActions for all enemy Jets,
+ *with the compiled forest or Weka's RandomForest. The WorldSnapshot is built once in setup, as a
+ *SimulationEngine builds it once per tick before consulting its Policy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InferenceBenchmark {
+
+	@Param({"true", "false"})
+	public boolean compiled;
+
+	private JetTrainer jt;
+	private WorldSnapshot world;
+	private int[] enemies;
+	private int[] actions;
+
+	@Setup
+	public void setup() throws Exception {
+		jt = new JetTrainer(new MyFeatureGenerator(), new RandomForest(), 5000);
+		jt.setCompileForest(compiled);
+		Arenas.record(jt, 5000, 1);
+		jt.train().get();
+
+		SimulationEngine engine = new SimulationEngine(new Arenas.SampleSink(), new RandomInputSource(2, 200));
+		engine.step(50);
+		Arenas.fill(engine.getProjectiles(), 20, 1, 1, new Random(1));
+		List<Jet> jets = engine.getJets();
+		world = new WorldSnapshot();
+		world.build(jets);
+		int user = engine.getUserJet().getId();
+		enemies = new int[jets.size() - 1];
+		for (int i=0, n=0; i<jets.size(); ++i) {
+			if (i != user) enemies[n++] = i;
+		}
+		actions = new int[enemies.length];
+	}
+
+	@Benchmark
+	public int getAction() {
+		return jt.getAction(world, enemies[0]);
+	}
+
+	@Benchmark
+	public int[] getActions() {
+		jt.getActions(world, enemies, actions);
+		return actions;
+	}
+
+}
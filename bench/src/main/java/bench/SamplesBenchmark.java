@@ -0,0 +1,72 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import learn.Samples;
+import weka.core.Instances;
+
+/**
+ *Time of adding a Sample to full Samples, which discards the oldest, and of converting full Samples
+ *to Instances for training.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SamplesBenchmark {
+
+	/**
+	 * Number of features generated by MyFeatureGenerator
+	 */
+	private static final int FEATURES = 7;
+
+	@Param({"1000", "10000"})
+	public int capacity;
+
+	private Samples samples;
+	private double[][] features;
+	private String[] labels;
+	private int next = 0;
+
+	@Setup
+	public void setup() {
+		Random r = new Random(1);
+		features = new double[1024][FEATURES];
+		labels = new String[features.length];
+		for (int i=0; i<features.length; ++i) {
+			for (int k=0; k<features[i].length; ++k) features[i][k] = r.nextInt(5) == 0 ? Double.NaN : 250 * r.nextDouble();
+			labels[i] = Double.toString(Math.PI / 4 * (r.nextInt(8) - 3));
+		}
+		samples = new Samples(capacity);
+		for (int i=0; i<capacity; ++i) samples.addSample(features[i % features.length], labels[i % labels.length]);
+	}
+
+	@Benchmark
+	public Samples addSample() {
+		next = (next + 1) & (features.length - 1);
+		samples.addSample(features[next], labels[next]);
+		return samples;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Instances toInstances() {
+		return samples.toInstances();
+	}
+
+}
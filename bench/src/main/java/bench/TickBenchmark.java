@@ -0,0 +1,57 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.RandomInputSource;
+import game.SimulationEngine;
+import learn.JetTrainer;
+
+/**
+ *Time of one SimulationEngine tick, driven by a RandomInputSource, with enemy Jets moved by a trained
+ *JetTrainer. The arena is kept topped up with enemy projectiles, so each tick moves, collides and
+ *extracts features from at least that many.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark {
+
+	@Param({"0", "100", "1000"})
+	public int projectiles;
+
+	private SimulationEngine engine;
+	private Random random;
+
+	@Setup
+	public void setup() throws Exception {
+		JetTrainer policy = Arenas.trainedJetTrainer(2000, 1);
+		engine = new SimulationEngine(new Arenas.SampleSink(), new RandomInputSource(2, 200));
+		engine.setPolicy(policy);
+		random = new Random(3);
+		engine.step(1000);
+	}
+
+	@Benchmark
+	public long tick() {
+		Arenas.fill(engine.getProjectiles(), projectiles, 1, 1, random);
+		engine.step();
+		return engine.getTotalTicks();
+	}
+
+}
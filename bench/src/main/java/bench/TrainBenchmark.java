@@ -0,0 +1,54 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import learn.ForestTrainer;
+import learn.JetTrainer;
+
+/**
+ *Time of a full JetTrainer training on stored Samples recorded from play, with Weka's RandomForest or
+ *with a ForestTrainer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrainBenchmark {
+
+	@Param({"1000", "5000", "10000"})
+	public int capacity;
+
+	@Param({"weka", "forest"})
+	public String trainer;
+
+	private JetTrainer jt;
+
+	@Setup
+	public void setup() throws Exception {
+		jt = Arenas.trainedJetTrainer(capacity, 1);
+		if (trainer.equals("forest")) jt.setForestTrainer(new ForestTrainer(10));
+	}
+
+	/**
+	 * Each training has no new Samples, so it retrains on the same stored Samples
+	 */
+	@Benchmark
+	public Object train() throws Exception {
+		return jt.train().get();
+	}
+
+}
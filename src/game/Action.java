@@ -0,0 +1,110 @@
+package game;
+
+/**
+ *Codes for the discrete actions of a Jet, used from input through Samples and classifiers to movement
+ *instead of Angles and their String labels. Codes 0 to 7 move a Jet in direction code * PI/4, and IDLE
+ *keeps it still. The cosine and sine of every direction are computed once, so turning a code into
+ *movement involves no parsing and no trigonometry.
+ *
+ *Actions of non-user Jets and the labels of Samples are relative to a Jet's path to the origin, so that
+ *direction 0 heads for the origin and direction 2 circles it counterclockwise. Labels are the Strings
+ *Angles of the same directions had, so Samples and journals are unchanged.
+ */
+public final class Action {
+
+	/**
+	 * Number of directions, which are the codes below IDLE
+	 */
+	public static final int DIRECTIONS = 8;
+
+	/**
+	 * Code of the action which does not move
+	 */
+	public static final int IDLE = DIRECTIONS;
+
+	/**
+	 * Number of codes
+	 */
+	public static final int COUNT = DIRECTIONS + 1;
+
+	private static final double STEP = Math.PI / 4;
+
+	/**
+	 * Angle of each direction, as Angle computes it from the arrow keys, and its cosine and sine
+	 */
+	private static final double[] THETA = new double[DIRECTIONS];
+	private static final double[] COS = new double[DIRECTIONS];
+	private static final double[] SIN = new double[DIRECTIONS];
+
+	/**
+	 * Label of each code
+	 */
+	private static final String[] LABELS = new String[COUNT];
+
+	/**
+	 * Direction of each combination of horizontal and vertical arrow keys, by (x + 1) * 3 + y + 1
+	 */
+	private static final int[] KEYS = {5, 4, 3, 6, IDLE, 2, 7, 0, 1};
+
+	static {
+		int[] dx = {1, 1, 0, -1, -1, -1, 0, 1};
+		int[] dy = {0, 1, 1, 1, 0, -1, -1, -1};
+		for (int k=0; k<DIRECTIONS; ++k) {
+			THETA[k] = Angle.normalize(Math.atan2(dy[k], dx[k]));
+			COS[k] = Math.cos(THETA[k]);
+			SIN[k] = Math.sin(THETA[k]);
+			LABELS[k] = Double.toString(STEP * k);
+		}
+		LABELS[IDLE] = Double.toString(Double.NaN);
+	}
+
+	private Action() {}
+
+	/**
+	 * Return the direction of the vector sum of the arrow keys which are pressed, or IDLE if they cancel out
+	 */
+	public static int fromKeys(boolean up, boolean down, boolean left, boolean right) {
+		int x = (right ? 1:0) - (left ? 1:0);
+		int y = (up ? 1:0) - (down ? 1:0);
+		return KEYS[(x + 1) * 3 + y + 1];
+	}
+
+	/**
+	 * Return the direction nearest to action relative to the angle reference, or IDLE if action is IDLE
+	 */
+	public static int relative(int action, double reference) {
+		if (action == IDLE) return IDLE;
+		double theta = Angle.normalize(THETA[action] - Angle.normalize(reference));
+		return (int) (Math.round(theta / STEP) % DIRECTIONS);
+	}
+
+	/**
+	 * Return the cosine of the angle of direction action
+	 */
+	public static double cos(int action) {return COS[action];}
+
+	/**
+	 * Return the sine of the angle of direction action
+	 */
+	public static double sin(int action) {return SIN[action];}
+
+	/**
+	 * Return the angle of action, or NaN if action is IDLE
+	 */
+	public static double getTheta(int action) {return action == IDLE ? Double.NaN : THETA[action];}
+
+	/**
+	 * Return the label of action, which is the String of the Angle of its direction
+	 */
+	public static String label(int action) {return LABELS[action];}
+
+	/**
+	 * Return the code of the direction nearest to the Angle label, or IDLE if label is NaN
+	 */
+	public static int parse(String label) {
+		double theta = Double.parseDouble(label);
+		if (Double.isNaN(theta)) return IDLE;
+		return (int) (Math.round(Angle.normalize(theta) / STEP) % DIRECTIONS);
+	}
+
+}
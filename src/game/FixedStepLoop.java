@@ -0,0 +1,144 @@
+package game;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *Runs a tick at a fixed rate on its own thread, timed by System.nanoTime() rather than by delivered events,
+ *so that the simulation keeps the same speed however long individual ticks take. Each tick is due one
+ *period after the last. When ticks fall behind, the loop runs the ticks that are due back to back, up to a
+ *bound, and counts an overrun. No tick is ever skipped. If ticks are still due after the bound, the schedule
+ *of every later tick is pushed back by the time the loop is behind, so that game time runs slower than the
+ *clock rather than the loop falling ever further behind, and the time lost is counted. Drawing happens on
+ *another thread and simply shows the latest tick, so it is frames rather than ticks that are skipped while
+ *catching up.
+ */
+public class FixedStepLoop {
+
+	private final Runnable tick;
+	private final long period;
+
+	/**
+	 * Largest number of ticks run back to back to catch up
+	 */
+	private final int maxCatchUp;
+
+	private Thread thread;
+	private volatile boolean running = false;
+
+	/**
+	 * Time the current or next tick is due
+	 */
+	private volatile long due;
+
+	private volatile long ticks = 0;
+	private volatile long overruns = 0;
+	private volatile long slowdown = 0;
+
+	/**
+	 * Records overruns and slowdowns, or null
+	 */
+	private volatile Metrics metrics;
+
+	/**
+	 * Construct FixedStepLoop which runs tick every period nanoseconds, running at most maxCatchUp ticks
+	 * back to back when behind
+	 */
+	public FixedStepLoop(Runnable tick, long period, int maxCatchUp) {
+		if (period <= 0) throw new IllegalArgumentException("'period' must be greater than zero.");
+		if (maxCatchUp <= 0) throw new IllegalArgumentException("'maxCatchUp' must be greater than zero.");
+		this.tick = tick;
+		this.period = period;
+		this.maxCatchUp = maxCatchUp;
+	}
+
+	/**
+	 * Start running ticks on a daemon thread, the first of them immediately
+	 */
+	public synchronized void start() {
+		if (running) throw new IllegalStateException("FixedStepLoop is already running.");
+		running = true;
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {loop();}
+		}, "Simulation");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stop running ticks and wait for the current tick to finish
+	 */
+	public synchronized void stop() throws InterruptedException {
+		if (!running) return;
+		running = false;
+		LockSupport.unpark(thread);
+		if (thread != Thread.currentThread()) thread.join();
+	}
+
+	private void loop() {
+
+		due = System.nanoTime();
+		while (running) {
+
+			//Run every tick that is due, up to the bound
+			int run = 0;
+			while (running && run < maxCatchUp && due - System.nanoTime() <= 0) {
+				tick.run();
+				ticks += 1;
+				due += period;
+				run += 1;
+			}
+
+			//Slow game time by postponing the ticks that are still due rather than falling further behind.
+			//The next tick is due now, so the simulation keeps stepping as fast as it can.
+			long behind = System.nanoTime() - due;
+			long delay = 0;
+			if (run == maxCatchUp && behind > 0) {
+				delay = behind;
+				due += delay;
+				slowdown += delay;
+			}
+			if (run > 1 || delay > 0) {
+				overruns += 1;
+				Metrics m = metrics;
+				if (m != null) m.recordOverrun(delay);
+			}
+
+			long wait = due - System.nanoTime();
+			if (wait > 0) LockSupport.parkNanos(wait);
+		}
+	}
+
+	/**
+	 * Return the time, as by System.nanoTime(), at which the current tick was due. Ticks are due exactly one
+	 * period apart, however late they run, so this is the time of the simulation rather than of the clock.
+	 * Only meaningful during a tick.
+	 */
+	public long getTickTime() {return due;}
+
+	public long getPeriod() {return period;}
+	public int getMaxCatchUp() {return maxCatchUp;}
+	public boolean isRunning() {return running;}
+
+	/**
+	 * Return the number of ticks run
+	 */
+	public long getTicks() {return ticks;}
+
+	/**
+	 * Return the number of times ticks fell behind, so that several ran back to back or later ticks were postponed
+	 */
+	public long getOverruns() {return overruns;}
+
+	/**
+	 * Return the nanoseconds by which ticks were postponed because they were still due after catching up,
+	 * which is how far game time has fallen behind the clock
+	 */
+	public long getSlowdown() {return slowdown;}
+
+	/**
+	 * Count overruns and slowdowns in metrics as well, or stop if metrics is null
+	 */
+	public void setMetrics(Metrics metrics) {this.metrics = metrics;}
+
+}
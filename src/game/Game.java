@@ -1,65 +1,111 @@
 package game;
 
+import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.Graphics;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.DisplayMode;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.geom.Point2D;
-import java.util.ArrayList;
+import java.awt.image.BufferStrategy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.concurrent.locks.LockSupport;
 
-import javax.swing.JPanel;
-import javax.swing.Timer;
+import javax.management.JMException;
 
 import weka.classifiers.trees.RandomForest;
 
 import jet.Jet;
-import jet.Projectile;
 
 import learn.JetTrainer;
 import learn.MyFeatureGenerator;
+import learn.SampleJournal;
+import learn.SamplingPolicy;
 
 /**
  *Core class for the Smart Jets game. Responsible for retrieving and processing user input
- *and displaying graphics.
+ *and displaying graphics. Game logic is delegated to a SimulationEngine, which is advanced
+ *once every DELAY milliseconds by a FixedStepLoop.
+ *
+ *Graphics are drawn actively by a render thread into a BufferStrategy, once per refresh of the
+ *display, instead of being repainted after every tick. After each tick the SimulationEngine's state
+ *is copied into a RenderState, and frames are interpolated between the last two RenderStates,
+ *so the display is smooth at any refresh rate while drawing never delays the simulation.
  */
-public class Game extends JPanel implements ActionListener {
+public class Game extends Canvas implements InputSource {
 	
     /**
      * Given samples of game states and user actions and produces actions for non-user Jets
      */
     private JetTrainer jt = new JetTrainer(new MyFeatureGenerator(), new RandomForest(), 10000);
     
+    /**
+     * File in which Samples are kept between games
+     */
+    private final String JOURNAL = "samples.journal";
+    
+    /**
+     * File from which the Model of the last game is restored at startup, and to which it is written on exit
+     */
+    private final String MODEL = "jets.model";
+    
     /**
      * Radius of circular arena that Jets fight inside of
      */
-    private final int ARENA_RADIUS = 250;
+    private final int ARENA_RADIUS = SimulationEngine.ARENA_RADIUS;
     
     /**
-     * Interval in milliseconds with which the timer calls actionPerformed 
+     * Interval in milliseconds between ticks of the SimulationEngine
      */
     private final int DELAY = 5;
-    private Timer timer;
     
     /**
-     * Number of times the game has been updated by a Timer
+     * The user's actions are recorded every SAMPLE_STRIDE ticks and whenever they change, except while
+     * the user Jet stands still or its features have changed by less than SAMPLE_MIN_DELTA
+     */
+    private final int SAMPLE_STRIDE = 4;
+    private final double SAMPLE_MIN_DELTA = 1;
+    
+    /**
+     * Largest number of ticks run back to back to catch up after falling behind
+     */
+    private final int MAX_CATCH_UP = 5;
+    
+    /**
+     * Advances the SimulationEngine on its own thread
      */
-    private int ticks = 0;
+    private FixedStepLoop loop;
     
     /**
-     * Jets fire every FIRE_INTERVAL ticks
+     * Frames drawn per second when the refresh rate of the display is unknown
      */
-    private final int FIRE_INTERVAL = 100;
+    private final int DEFAULT_REFRESH_RATE = 60;
     
     /**
-     * Number of Jets that are currently alive
+     * Runs the game logic independently of the display
      */
-    private int alive;
+    private SimulationEngine engine;
+    
+    /**
+     * The last two states of the SimulationEngine, written after each tick and read by the render
+     * thread while holding their lock
+     */
+    private RenderState previous = new RenderState();
+    private RenderState latest = new RenderState();
+    private final Object stateLock = new Object();
+    
+    /**
+     * Thread which draws frames, while the Game is displayable
+     */
+    private Thread renderThread;
+    private volatile boolean rendering = false;
     
     /**
      * Represents whether each arrow/wasd key is pressed by user
@@ -75,205 +121,269 @@ public class Game extends JPanel implements ActionListener {
     private volatile int mouseX = 0;
     private volatile int mouseY = 0;
     
-    private Jet userJet;
-    private List<Jet> jets = new ArrayList<Jet>();
+    private final int JET_RADIUS = SimulationEngine.JET_RADIUS;
+    private final int PROJECTILE_RADIUS = SimulationEngine.PROJECTILE_RADIUS;
     
-    private final int JET_RADIUS = 10;
-    private final int PROJECTILE_RADIUS = 2;
+
+    /**
+     * Latencies and counts of the running game, published through JMX
+     */
+    private final Metrics metrics = new Metrics();
     
+    /**
+     * Records the session if a recording was requested, or null
+     */
+    private ReplayRecorder recorder;
 
     public Game() {
+        this(null);
+    }
+    
+    /**
+     * Construct Game which records the session to recording, unless it is null. The journal and model
+     * the session starts from are copied next to the recording, with the extensions .journal and .model
+     * appended, for a ReplayPlayer to start from.
+     */
+    public Game(File recording) {
 
         addKeyListener(new MyKeyAdapter());
         addMouseMotionListener(new MyMouseAdapter());
         setFocusable(true);
         setBackground(Color.BLACK);
+        setIgnoreRepaint(true);
         
         setPreferredSize(new Dimension(2*ARENA_RADIUS, 2*ARENA_RADIUS));
+        
+        jt.setSamplingPolicy(new SamplingPolicy(SAMPLE_STRIDE, true, true, SAMPLE_MIN_DELTA));
+
+        //Enemy Jets play with the Model of the last game until the Samples of previous games are trained on
+        File model = new File(MODEL);
+        if (model.exists()) {
+            try {
+                long start = System.nanoTime();
+                jt.importModel(model);
+                System.out.println("Loaded " + MODEL + " in " + String.format("%.1f", (System.nanoTime() - start) / 1e6) + " ms.");
+                if (recording != null) {
+                    Files.copy(model.toPath(), new File(recording.getPath() + ".model").toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            catch (IOException e) {
+                System.out.println("Model will not be restored: " + e.getMessage());
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {saveModel();}
+        }));
 
-        //Add user Jet
-    	userJet = new Jet(new Point2D.Double(0,0), Color.BLUE, JET_RADIUS, PROJECTILE_RADIUS);
-    	jets.add(userJet);
-    	
-    	//Add two non-user Jets
-    	Jet j;
-    	j = new Jet(new Point2D.Double(ARENA_RADIUS - JET_RADIUS, 0), Color.RED, JET_RADIUS, PROJECTILE_RADIUS);
-    	jets.add(j);
-    	j = new Jet(new Point2D.Double(-ARENA_RADIUS + JET_RADIUS,0), Color.RED, JET_RADIUS, PROJECTILE_RADIUS);
-    	jets.add(j);
+        //Enemy Jets resume with the Samples of previous games
+        try {
+            File journal = new File(JOURNAL);
+            if (recording != null && journal.exists()) {
+                Files.copy(journal.toPath(), new File(recording.getPath() + ".journal").toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            jt.useJournal(new SampleJournal(journal));
+        }
+        catch (IOException e) {
+            System.out.println("Samples will not be kept: " + e.getMessage());
+        }
+
+        InputSource input = this;
+        if (recording != null) {
+            try {
+                recorder = new ReplayRecorder(recording, this, jt, 3, 2);
+                input = recorder;
+                Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                    @Override
+                    public void run() {stopRecording();}
+                }));
+            }
+            catch (IOException e) {
+                System.out.println("Session will not be recorded: " + e.getMessage());
+            }
+        }
+
+        engine = new SimulationEngine(jt, input);
         
-        alive = jets.size();
+        //Publish latencies of ticks, frames and trainings for JMX clients
+        engine.setMetrics(metrics);
+        jt.setMetrics(metrics);
+        metrics.setDeadline(DELAY * 1000000L);
+        try {
+            metrics.register();
+        }
+        catch (JMException e) {
+            System.out.println("Metrics will not be published: " + e.getMessage());
+        }
+        publish(System.nanoTime());
         
-    	timer = new Timer(DELAY, this);
-        timer.start();
+        loop = new FixedStepLoop(new Runnable() {
+            @Override
+            public void run() {tick();}
+        }, DELAY * 1000000L, MAX_CATCH_UP);
+        loop.setMetrics(metrics);
+        loop.start();
     }
-    
+
     /**
-     * Restarts the game. JetTrainer trains non-user Jets if train is True.
-     * Samples of recent round are discarded if train is False.
+     * Write the Model in use to MODEL, if one has been trained or restored
      */
-    private void restart(boolean train) {
-    	
-    	timer.stop();
-    	
-    	//train JetTrainer or remove Samples from last round
-    	if (train) jt.train();
-    	else jt.flushSampleBuffer();
-    	
-    	for (Jet j: jets) {
-    		j.reset();
-    	}
-    	ticks = 0;
-    	alive = jets.size();
-	    	
-    	timer.start();
+    public void saveModel() {
+        if (jt.getModelVersion() == 0) return;
+        try {
+            jt.exportModel(new File(MODEL));
+        }
+        catch (IOException e) {
+            System.out.println("Model will not be kept: " + e.getMessage());
+        }
     }
 
+    /**
+     * Write the end of the recording, if the session is being recorded
+     */
+    public void stopRecording() {
+        if (recorder == null) return;
+        try {
+            recorder.close();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Start drawing once the Game can have a BufferStrategy
+     */
     @Override
-    public void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        
-        g.setColor(Color.WHITE);
-    	g.fillOval(0, 0, 2*ARENA_RADIUS, 2*ARENA_RADIUS);
+    public void addNotify() {
+        super.addNotify();
+        createBufferStrategy(2);
         
-    	for (Jet j: jets) {
-        	paintJet(g, j);
-        }
+        rendering = true;
+        renderThread = new Thread(new Runnable() {
+            @Override
+            public void run() {render();}
+        }, "Renderer");
+        renderThread.setDaemon(true);
+        renderThread.start();
     }
     
-    public void paintJet(Graphics g, Jet j) {
-    	
-    	g.setColor(j.getTeam());
-    	
-    	//Paint Jet j
-    	double jetX = j.getX() - JET_RADIUS + ARENA_RADIUS;
-        double jetY = -j.getY() - JET_RADIUS + ARENA_RADIUS;
-    	if (!j.isDead()) g.fillOval((int) jetX, (int) jetY, 2*JET_RADIUS, 2*JET_RADIUS);
-        
-    	//Paint each of Jet j's Projectiles
-    	for (Projectile p: j.getProjectiles()) {
-        	double pX = p.getX() - PROJECTILE_RADIUS + ARENA_RADIUS;
-            double pY = -p.getY() - PROJECTILE_RADIUS + ARENA_RADIUS;
-        	g.fillOval((int) pX, (int) pY, 2*PROJECTILE_RADIUS, 2*PROJECTILE_RADIUS);
+    /**
+     * Stop drawing before the BufferStrategy is released
+     */
+    @Override
+    public void removeNotify() {
+        rendering = false;
+        try {
+            renderThread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        super.removeNotify();
     }
 
     /**
-     * Called by Timer every DELAY milliseconds. Saves game state and user action to JetTrainer, moves Jets
-     * and Projectiles, detects collisions. 
+     * Draw frames at the refresh rate of the display until rendering stops. Each frame is drawn one
+     * tick behind the simulation, interpolated by the time since the latest tick was due.
      */
-    @Override
-    public void actionPerformed(ActionEvent e) {
-    	
-    	//Calculate user movement angle relative to origin
-    	Angle a = new Angle(up, down, left, right);
-    	Angle toOrigin = new Angle(userJet.angleToOrigin());
-    	Angle relA = a.substract(toOrigin);
-    	
-    	//Round user movement angle to nearest PI/4 and add to JetTrainer
-    	jt.addSample(jets, jets.indexOf(userJet), relA.round(new Angle(Math.PI / 4)));
-    	
-    	boolean fire = ticks % FIRE_INTERVAL == 0;
-    	ticks += 1;
-        for (Jet j: jets) {
-        	
-        	j.moveProjectiles();
-        	
-        	if (fire) {
-        		//Fire projectiles
-        		if (j == userJet) j.pointTo(mouseX - ARENA_RADIUS, -(mouseY - ARENA_RADIUS));
-	        	else j.pointTo(userJet.getX(), userJet.getY());
-	        	j.fireProjectile();
-        	}
-        	
-        	//Move Jets
-        	if (j == userJet) j.move(a.getTheta());
-        	else if (jt.isTrained()) {
-        		
-        		//Get angle from JetTrainer and convert from relative angle to absolute angle
-        		Angle relB = jt.getAngle(jets, jets.indexOf(j));
-        		toOrigin = new Angle(j.angleToOrigin());
-        		Angle b = relB.add(toOrigin);
-        		
-        		j.move(b.getTheta());
-        	}
-        	returnToBoard(j);
-        	removeLostProjectiles(j);
-        }
-    	
-    	collisions();
+    private void render() {
+
+        //Copies of the shared states, so that drawing does not hold their lock
+        RenderState from = new RenderState();
+        RenderState to = new RenderState();
         
-        repaint();
+        List<Jet> jets = engine.getJets();
+        Color[] colors = new Color[jets.size()];
+        for (int i=0; i<colors.length; ++i) colors[i] = jets.get(i).getColor();
+        Renderer renderer = new Renderer(ARENA_RADIUS, JET_RADIUS, PROJECTILE_RADIUS, colors);
         
-        if (userJet.isDead()) restart(false);
-    	if (alive <= 1) restart(true);
+        BufferStrategy strategy = getBufferStrategy();
+        int rate = getGraphicsConfiguration().getDevice().getDisplayMode().getRefreshRate();
+        if (rate == DisplayMode.REFRESH_RATE_UNKNOWN) rate = DEFAULT_REFRESH_RATE;
+        long period = 1000000000L / rate;
+        
+        long next = System.nanoTime();
+        while (rendering) {
+            
+            synchronized (stateLock) {
+                from.copy(previous);
+                to.copy(latest);
+            }
+            
+            long now = System.nanoTime();
+            long interval = to.time - from.time;
+            double alpha = interval > 0 ? Math.min(1, (now - to.time) / (double) interval) : 1;
+            
+            //Draw until the frame has not been lost, as required of a BufferStrategy
+            long start = System.nanoTime();
+            do {
+                do {
+                    Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                    renderer.draw(g, getGraphicsConfiguration(), from, to, alpha);
+                    g.dispose();
+                } while (strategy.contentsRestored());
+                strategy.show();
+            } while (strategy.contentsLost());
+            Toolkit.getDefaultToolkit().sync();
+            metrics.recordPainting(System.nanoTime() - start);
+            
+            //Wait for the next refresh, skipping refreshes that have already been missed
+            next += period;
+            now = System.nanoTime();
+            if (next < now) next = now;
+            else LockSupport.parkNanos(next - now);
+        }
     }
     
     /**
-     * Return Jets that have left board by projecting towards origin
+     * Copy the state of the SimulationEngine, as of time, for the render thread
      */
-    private void returnToBoard(Jet j) {
-    	double locTheta = j.angleFromOrigin();
-		double locRadius = j.distanceToOrigin();
-		double maxRadius = ARENA_RADIUS - JET_RADIUS;
-		if (locRadius > maxRadius) 
-			j.setLocation(maxRadius * Math.cos(locTheta), maxRadius * Math.sin(locTheta));
+    private void publish(long time) {
+        synchronized (stateLock) {
+            RenderState s = previous;
+            previous = latest;
+            latest = s;
+            latest.capture(engine, time);
+        }
     }
-    
+
     /**
-     * Remove projectiles belonging to Jet j if they have left the board
+     * Called by the FixedStepLoop every DELAY milliseconds. Advances the SimulationEngine by one tick.
+     * The state is published at the time the tick was due, so that frames are interpolated evenly
+     * even while ticks are run back to back to catch up.
      */
-    private void removeLostProjectiles(Jet j) {
-    	List<Projectile> projectiles = j.getProjectiles();
-    	for (Projectile p: new ArrayList<Projectile>(projectiles)){
-        	double px = p.getX();
-        	double py = p.getY();
-        	if (Math.sqrt(Math.pow(px, 2) + Math.pow(py, 2)) > ARENA_RADIUS + PROJECTILE_RADIUS) projectiles.remove(p);
-        }
+    private void tick() {
+    	engine.step();
+        publish(loop.getTickTime());
     }
     
     /**
-     * Detect collisions between Jets and Projectiles and other Jets
+     * User input is delivered asynchronously by key and mouse listeners
      */
-    private void collisions() {
-    	List<Jet>jetsCopy = new ArrayList<Jet>(jets);
-    	for (Jet j: jetsCopy) {
-    		List<Projectile> projectiles = j.getProjectiles();
-    		List<Projectile> projCopy = new ArrayList<Projectile>(projectiles);
-    		for (Jet k: jetsCopy) {
-    			
-    			//separate Jets if they are intersecting
-    			if (k.distanceTo(j) < 2 * JET_RADIUS) separateJets(k,j); 
-    			
-    			//Detect collisions between Jets and enemy Projectiles
-    			for (Projectile p: projCopy) {
-    				if (!k.isDead() && !k.getTeam().equals(j.getTeam())) {
-	    				if (k.distanceTo(p.getX(), p.getY()) < JET_RADIUS + PROJECTILE_RADIUS) {
-	    					projectiles.remove(p);	//remove collided Projectiles
-	    					k.hit();
-	    					if (k.isDead()) alive -= 1;
-	    				}
-    				}
-    			}
-    		}
-    	}
-    }
+    @Override
+    public void poll() {}
+    
+    @Override
+    public boolean isUp() {return up;}
+    @Override
+    public boolean isDown() {return down;}
+    @Override
+    public boolean isLeft() {return left;}
+    @Override
+    public boolean isRight() {return right;}
     
     /**
-     * Separate two Jets by moving them along the line between their origins
+     * Return horizontal mouse position in arena coordinates
      */
-    private void separateJets(Jet a, Jet b) {
-    	
-    	double distBetween  = a.distanceTo(b) - 2 * JET_RADIUS;
-    	if (distBetween >= 0) return;
-    	
-    	double aToB = a.angleTo(b);
-    	double halfMove = Math.abs(distBetween) / 2.;
-    	double horMove = halfMove * Math.cos(aToB);
-    	double verMove = halfMove * Math.sin(aToB);
-    	a.setLocation(a.getX() - horMove, a.getY() - verMove);
-    	b.setLocation(b.getX() + horMove, b.getY() + verMove);
-    }
+    @Override
+    public double getAimX() {return mouseX - ARENA_RADIUS;}
+    
+    /**
+     * Return vertical mouse position in arena coordinates
+     */
+    @Override
+    public double getAimY() {return -(mouseY - ARENA_RADIUS);}
 
     private class MyKeyAdapter extends KeyAdapter {
 
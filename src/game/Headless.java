@@ -0,0 +1,51 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+
+import weka.classifiers.trees.RandomForest;
+
+import learn.JetTrainer;
+import learn.MyFeatureGenerator;
+
+/**
+ * Runs the Smart Jets game without a display, driven by a RandomInputSource, and reports
+ * simulation throughput. Usage: Headless [ticks] [seed] [jets] [teams] [recording]
+ * If a recording file is given, the session is recorded to it for a ReplayPlayer. The latencies of the
+ * phases of a tick are printed at the end.
+ */
+public class Headless {
+
+	public static void main(String[] args) throws IOException {
+
+		long ticks = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		int jets = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		int teams = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+		JetTrainer jt = new JetTrainer(new MyFeatureGenerator(), new RandomForest(), 10000);
+		InputSource input = new RandomInputSource(seed, 200);
+		ReplayRecorder recorder = null;
+		if (args.length > 4) {
+			recorder = new ReplayRecorder(new File(args[4]), input, jt, jets, teams);
+			input = recorder;
+		}
+		SimulationEngine engine = new SimulationEngine(jt, jt, input, jets, teams);
+		Metrics metrics = new Metrics();
+		engine.setMetrics(metrics);
+		jt.setMetrics(metrics);
+
+		long start = System.nanoTime();
+		for (long k=0; k<ticks; ++k) engine.step();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		if (recorder != null) recorder.close();
+
+		System.out.println("Simulated " + Long.toString(ticks) + " ticks over " + Integer.toString(engine.getRounds())
+				+ " rounds in " + String.format("%.2f", seconds) + " s (" + String.format("%.0f", ticks / seconds) + " ticks/s).");
+		System.out.println(jt.getSamplingPolicy());
+		System.out.println(metrics);
+		if (recorder != null) System.out.println("Recorded to " + recorder.getFile() + ". Checksum "
+				+ Long.toHexString(ReplayPlayer.checksum(engine)) + ".");
+	}
+
+}
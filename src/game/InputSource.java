@@ -0,0 +1,23 @@
+package game;
+
+/**
+ *Supplies the user's input to a SimulationEngine once per tick. Movement is described by which
+ *arrow/wasd keys are pressed and aim by a point in arena coordinates, with the origin at the center
+ *of the arena and y increasing upwards.
+ */
+public interface InputSource {
+
+	/**
+	 * Called by the SimulationEngine at the beginning of every tick, before input is read.
+	 */
+	public void poll();
+
+	public boolean isUp();
+	public boolean isDown();
+	public boolean isLeft();
+	public boolean isRight();
+
+	public double getAimX();
+	public double getAimY();
+
+}
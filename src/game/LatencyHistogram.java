@@ -0,0 +1,102 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *Counts durations in nanoseconds in buckets which grow with the duration, so that percentiles can be
+ *estimated within 12.5% of any duration with a fixed amount of memory. Durations below 8 ns have a bucket
+ *each, and every power of two above is divided into 8 buckets. Recording is lock-free and allocates
+ *nothing, and may happen on any thread while another thread takes snapshots.
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Number of buckets each power of two is divided into, and its log
+	 */
+	private static final int SUB_BITS = 3;
+	private static final int SUB = 1 << SUB_BITS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(64 * SUB);
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a duration of nanos nanoseconds. Negative durations are recorded as 0.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		counts.incrementAndGet(bucket(nanos));
+		sum.addAndGet(nanos);
+		long m = max.get();
+		while (nanos > m && !max.compareAndSet(m, nanos)) m = max.get();
+	}
+
+	/**
+	 * Return the count, mean, 50th, 90th and 99th percentiles and maximum of the recorded durations.
+	 * Each percentile is the largest duration of the bucket it falls in, but no more than the maximum.
+	 */
+	public LatencySnapshot snapshot() {
+		long[] c = new long[counts.length()];
+		long n = 0;
+		for (int b=0; b<c.length; ++b) {
+			c[b] = counts.get(b);
+			n += c[b];
+		}
+		if (n == 0) return new LatencySnapshot(0, 0, 0, 0, 0, 0);
+		long m = max.get();
+		return new LatencySnapshot(n, micros(sum.get() / (double) n), micros(percentile(c, n, 0.5, m)),
+				micros(percentile(c, n, 0.9, m)), micros(percentile(c, n, 0.99, m)), micros(m));
+	}
+
+	/**
+	 * Forget every recorded duration
+	 */
+	public void reset() {
+		for (int b=0; b<counts.length(); ++b) counts.set(b, 0);
+		sum.set(0);
+		max.set(0);
+	}
+
+	public long getCount() {
+		long n = 0;
+		for (int b=0; b<counts.length(); ++b) n += counts.get(b);
+		return n;
+	}
+
+	/**
+	 * Return the duration below which a fraction p of the durations counted in c fall
+	 */
+	private static long percentile(long[] c, long n, double p, long max) {
+		long rank = (long) Math.ceil(p * n);
+		long seen = 0;
+		for (int b=0; b<c.length; ++b) {
+			seen += c[b];
+			if (seen >= rank) return Math.min(max, upperBound(b));
+		}
+		return max;
+	}
+
+	/**
+	 * Return the bucket of duration v
+	 */
+	static int bucket(long v) {
+		if (v < SUB) return (int) v;
+		int exp = 63 - Long.numberOfLeadingZeros(v);
+		int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+		return (exp - SUB_BITS + 1) * SUB + sub;
+	}
+
+	/**
+	 * Return the largest duration in bucket b
+	 */
+	static long upperBound(int b) {
+		if (b < SUB) return b;
+		int exp = b / SUB + SUB_BITS - 1;
+		long width = 1L << (exp - SUB_BITS);
+		return (1L << exp) + (b % SUB) * width + width - 1;
+	}
+
+	private static double micros(double nanos) {return nanos / 1000;}
+
+}
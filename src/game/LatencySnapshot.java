@@ -0,0 +1,36 @@
+package game;
+
+import java.beans.ConstructorProperties;
+
+/**
+ *Summary of the durations recorded by a LatencyHistogram at one moment, in microseconds. Shown by JMX
+ *clients such as JConsole as a composite attribute of the Metrics MXBean.
+ */
+public class LatencySnapshot {
+
+	private final long count;
+	private final double mean, p50, p90, p99, max;
+
+	@ConstructorProperties({"count", "meanMicros", "p50Micros", "p90Micros", "p99Micros", "maxMicros"})
+	public LatencySnapshot(long count, double mean, double p50, double p90, double p99, double max) {
+		this.count = count;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.max = max;
+	}
+
+	public long getCount() {return count;}
+	public double getMeanMicros() {return mean;}
+	public double getP50Micros() {return p50;}
+	public double getP90Micros() {return p90;}
+	public double getP99Micros() {return p99;}
+	public double getMaxMicros() {return max;}
+
+	@Override
+	public String toString() {
+		return String.format("n=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus", count, mean, p50, p90, p99, max);
+	}
+
+}
@@ -1,16 +1,19 @@
 package game;
 
 import java.awt.EventQueue;
+import java.io.File;
+
 import javax.swing.JFrame;
 
 /**
- * Launches the Smart Jets game
+ * Launches the Smart Jets game. Usage: Main [recording]
+ * If a recording file is given, the session is recorded to it for a ReplayPlayer.
  */
 public class Main extends JFrame {
 
-    public Main() {
+    public Main(File recording) {
 
-        add(new Game());
+        add(new Game(recording));
         setTitle("Smart Jets");
         pack();
         setResizable(false);
@@ -20,10 +23,11 @@ public class Main extends JFrame {
     
     public static void main(String[] args) {
         
+        final File recording = args.length > 0 ? new File(args[0]) : null;
         EventQueue.invokeLater(new Runnable() {
             @Override
             public void run() {                
-                JFrame m = new Main();
+                JFrame m = new Main(recording);
                 m.setVisible(true);                
             }
         });
@@ -0,0 +1,181 @@
+package game;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ *Latency histograms and counts of a running game, published as an MXBean so that they can be watched
+ *from JConsole or scraped by any JMX client. A SimulationEngine records the phases of its ticks, a
+ *JetTrainer its feature generation, inference and training, and the display its frames, once each is
+ *given the Metrics. Counts of Jets and Projectiles are read from the SimulationEngine when asked for.
+ *
+ *Recording allocates nothing and may happen on any thread.
+ */
+public class Metrics implements MetricsMXBean {
+
+	/**
+	 * Name under which Metrics are registered by default
+	 */
+	public static final String NAME = "smartjets:type=Metrics";
+
+	private final LatencyHistogram tick = new LatencyHistogram();
+	private final LatencyHistogram features = new LatencyHistogram();
+	private final LatencyHistogram inference = new LatencyHistogram();
+	private final LatencyHistogram policy = new LatencyHistogram();
+	private final LatencyHistogram movement = new LatencyHistogram();
+	private final LatencyHistogram collisions = new LatencyHistogram();
+	private final LatencyHistogram painting = new LatencyHistogram();
+	private final LatencyHistogram training = new LatencyHistogram();
+
+	private volatile int samplesTrained = 0;
+	private volatile long missedDeadlines = 0;
+	private volatile long overruns = 0;
+	private volatile long slowdown = 0;
+
+	/**
+	 * Deadline of a tick in nanoseconds, or 0 if ticks have no deadline
+	 */
+	private volatile long deadline = 0;
+
+	/**
+	 * SimulationEngine whose Jets and Projectiles are counted, or null
+	 */
+	private volatile SimulationEngine engine;
+
+	/**
+	 * Register the Metrics with the platform MBeanServer under NAME
+	 */
+	public void register() throws JMException {
+		register(NAME);
+	}
+
+	public void register(String name) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+	}
+
+	/**
+	 * Count the Jets and Projectiles of engine
+	 */
+	void setEngine(SimulationEngine engine) {this.engine = engine;}
+
+	/**
+	 * Count ticks which take longer than nanos nanoseconds as missed deadlines, or none if nanos is 0
+	 */
+	public void setDeadline(long nanos) {deadline = nanos;}
+
+	/**
+	 * Record the phases of a tick which took tick nanoseconds in total
+	 */
+	void recordTick(long tick, long policy, long movement, long collisions) {
+		this.tick.record(tick);
+		if (policy >= 0) this.policy.record(policy);
+		this.movement.record(movement);
+		this.collisions.record(collisions);
+		long d = deadline;
+		if (d > 0 && tick > d) missedDeadlines += 1;
+	}
+
+	/**
+	 * Record that ticks fell behind their schedule and that later ticks were postponed by delay nanoseconds
+	 */
+	public void recordOverrun(long delay) {
+		overruns += 1;
+		slowdown += delay;
+	}
+
+	public void recordFeatures(long nanos) {features.record(nanos);}
+	public void recordInference(long nanos) {inference.record(nanos);}
+	public void recordPainting(long nanos) {painting.record(nanos);}
+
+	/**
+	 * Record a training which took nanos nanoseconds on samples Samples
+	 */
+	public void recordTraining(long nanos, int samples) {
+		training.record(nanos);
+		samplesTrained = samples;
+	}
+
+	@Override
+	public LatencySnapshot getTick() {return tick.snapshot();}
+	@Override
+	public LatencySnapshot getFeatures() {return features.snapshot();}
+	@Override
+	public LatencySnapshot getInference() {return inference.snapshot();}
+	@Override
+	public LatencySnapshot getPolicy() {return policy.snapshot();}
+	@Override
+	public LatencySnapshot getMovement() {return movement.snapshot();}
+	@Override
+	public LatencySnapshot getCollisions() {return collisions.snapshot();}
+	@Override
+	public LatencySnapshot getPainting() {return painting.snapshot();}
+	@Override
+	public LatencySnapshot getTraining() {return training.snapshot();}
+
+	@Override
+	public long getTicks() {
+		SimulationEngine e = engine;
+		return e == null ? 0 : e.getTotalTicks();
+	}
+
+	@Override
+	public int getRounds() {
+		SimulationEngine e = engine;
+		return e == null ? 0 : e.getRounds();
+	}
+
+	@Override
+	public int getJets() {
+		SimulationEngine e = engine;
+		return e == null ? 0 : e.getJets().size();
+	}
+
+	@Override
+	public int getAliveJets() {
+		SimulationEngine e = engine;
+		return e == null ? 0 : e.getAlive();
+	}
+
+	@Override
+	public int getProjectiles() {
+		SimulationEngine e = engine;
+		return e == null ? 0 : e.getProjectiles().size();
+	}
+
+	@Override
+	public long getTrainings() {return training.getCount();}
+	@Override
+	public int getSamplesTrained() {return samplesTrained;}
+	@Override
+	public long getMissedDeadlines() {return missedDeadlines;}
+	@Override
+	public long getOverruns() {return overruns;}
+	@Override
+	public long getSlowdownNanos() {return slowdown;}
+
+	@Override
+	public void reset() {
+		tick.reset();
+		features.reset();
+		inference.reset();
+		policy.reset();
+		movement.reset();
+		collisions.reset();
+		painting.reset();
+		training.reset();
+		missedDeadlines = 0;
+		overruns = 0;
+		slowdown = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "tick " + tick.snapshot() + "\nfeatures " + features.snapshot() + "\ninference " + inference.snapshot()
+				+ "\npolicy " + policy.snapshot() + "\nmovement " + movement.snapshot() + "\ncollisions "
+				+ collisions.snapshot() + "\ntraining " + training.snapshot() + "\nmissed deadlines " + missedDeadlines
+				+ ", overruns " + overruns + ", game time slowed by " + String.format("%.1f", slowdown / 1e6) + " ms";
+	}
+
+}
@@ -0,0 +1,72 @@
+package game;
+
+/**
+ *Management interface of Metrics, through which JMX clients such as JConsole read the latencies of the
+ *phases of a tick, of drawing and of training, and counts of Jets, Projectiles, Samples and missed deadlines.
+ */
+public interface MetricsMXBean {
+
+	/**
+	 * Whole ticks of the SimulationEngine
+	 */
+	public LatencySnapshot getTick();
+
+	/**
+	 * Feature generation for the user's Sample and for the Jets moved by a JetTrainer
+	 */
+	public LatencySnapshot getFeatures();
+
+	/**
+	 * Classification of the features of the Jets moved by a JetTrainer, including PredictionCache lookups
+	 */
+	public LatencySnapshot getInference();
+
+	/**
+	 * Calls to the Policy for the angles of all non-user Jets, including feature generation and inference
+	 */
+	public LatencySnapshot getPolicy();
+
+	/**
+	 * Firing and moving Jets and Projectiles, apart from the Policy
+	 */
+	public LatencySnapshot getMovement();
+
+	public LatencySnapshot getCollisions();
+
+	/**
+	 * Drawing one frame
+	 */
+	public LatencySnapshot getPainting();
+
+	public LatencySnapshot getTraining();
+
+	public long getTicks();
+	public int getRounds();
+	public int getJets();
+	public int getAliveJets();
+	public int getProjectiles();
+
+	/**
+	 * Number of trainings completed and the number of Samples the last one trained with
+	 */
+	public long getTrainings();
+	public int getSamplesTrained();
+
+	/**
+	 * Number of ticks which took longer than the interval between ticks
+	 */
+	public long getMissedDeadlines();
+
+	/**
+	 * Number of times ticks fell behind their schedule and had to catch up, and nanoseconds by which game
+	 * time was slowed because ticks could not catch up. Ticks are postponed rather than skipped.
+	 */
+	public long getOverruns();
+	public long getSlowdownNanos();
+
+	/**
+	 * Forget all recorded latencies, missed deadlines and overruns
+	 */
+	public void reset();
+
+}
@@ -0,0 +1,23 @@
+package game;
+
+import learn.WorldSnapshot;
+
+/**
+ *Produces movement for non-user Jets. A Policy is consulted by a SimulationEngine once per tick
+ *for all living non-user Jets at once, with the snapshot of the game state that the tick's Sample was
+ *recorded from.
+ */
+public interface Policy {
+
+	/**
+	 * Write to actions[k] the Action code of the Jet at indices[k] in world, relative to the Jet's path
+	 * to the origin, or Action.IDLE if the Jet should not move. actions is at least as long as indices.
+	 */
+	public void getActions(WorldSnapshot world, int[] indices, int[] actions);
+
+	/**
+	 * Return True if the Policy is able to produce movement.
+	 */
+	public boolean isReady();
+
+}
@@ -0,0 +1,60 @@
+package game;
+
+import java.util.Random;
+
+/**
+ *Scripted InputSource for headless simulation. Holds a random combination of arrow keys for a
+ *random number of ticks and aims at a random point in the arena.
+ */
+public class RandomInputSource implements InputSource {
+
+	private final Random random;
+
+	/**
+	 * Maximum number of ticks for which a combination of keys is held
+	 */
+	private final int maxHold;
+
+	private int remaining = 0;
+
+	private boolean up, down, left, right;
+	private double aimX, aimY;
+
+	public RandomInputSource(long seed, int maxHold) {
+		if (maxHold <= 0) throw new IllegalArgumentException("'maxHold' must be greater than zero.");
+		this.random = new Random(seed);
+		this.maxHold = maxHold;
+	}
+
+	/**
+	 * Advance the script by one tick, choosing new keys and aim when the current ones expire.
+	 */
+	@Override
+	public void poll() {
+		if (remaining > 0) {
+			remaining -= 1;
+			return;
+		}
+		remaining = random.nextInt(maxHold);
+		up = random.nextBoolean();
+		down = random.nextBoolean();
+		left = random.nextBoolean();
+		right = random.nextBoolean();
+		aimX = (2 * random.nextDouble() - 1) * SimulationEngine.ARENA_RADIUS;
+		aimY = (2 * random.nextDouble() - 1) * SimulationEngine.ARENA_RADIUS;
+	}
+
+	@Override
+	public boolean isUp() {return up;}
+	@Override
+	public boolean isDown() {return down;}
+	@Override
+	public boolean isLeft() {return left;}
+	@Override
+	public boolean isRight() {return right;}
+	@Override
+	public double getAimX() {return aimX;}
+	@Override
+	public double getAimY() {return aimY;}
+
+}
@@ -0,0 +1,53 @@
+package game;
+
+import java.util.Random;
+
+import learn.WorldSnapshot;
+
+/**
+ *Scripted Policy for headless simulation. Each non-user Jet holds a random action for a random number
+ *of ticks, so that rounds played before any classifier is trained have opponents which move. A
+ *RandomPolicy keeps the action of every Jet, so it must only be used by one SimulationEngine.
+ */
+public class RandomPolicy implements Policy {
+
+	private final Random random;
+
+	/**
+	 * Maximum number of ticks for which an action is held
+	 */
+	private final int maxHold;
+
+	/**
+	 * Action held by each Jet, by id, and the number of ticks it is still held for
+	 */
+	private int[] held = new int[0];
+	private int[] remaining = new int[0];
+
+	public RandomPolicy(long seed, int maxHold) {
+		if (maxHold <= 0) throw new IllegalArgumentException("'maxHold' must be greater than zero.");
+		this.random = new Random(seed);
+		this.maxHold = maxHold;
+	}
+
+	@Override
+	public void getActions(WorldSnapshot world, int[] indices, int[] actions) {
+		if (held.length < world.getNumJets()) {
+			held = new int[world.getNumJets()];
+			remaining = new int[world.getNumJets()];
+		}
+		for (int k=0; k<indices.length; ++k) {
+			int i = indices[k];
+			if (remaining[i] > 0) remaining[i] -= 1;
+			else {
+				remaining[i] = random.nextInt(maxHold);
+				held[i] = random.nextInt(Action.COUNT);
+			}
+			actions[k] = held[i];
+		}
+	}
+
+	@Override
+	public boolean isReady() {return true;}
+
+}
@@ -0,0 +1,104 @@
+package game;
+
+import java.util.Arrays;
+import java.util.List;
+
+import jet.Jet;
+import jet.ProjectilePool;
+
+/**
+ *A copy of the positions of the Jets and Projectiles of a SimulationEngine, taken after a tick so that
+ *they can be drawn by another thread while the simulation continues. The arrays only grow to the largest
+ *number of Jets and Projectiles captured, so capturing and copying allocate nothing once they have grown.
+ */
+class RenderState {
+
+	/**
+	 * Value of System.nanoTime() when the state was captured
+	 */
+	long time;
+
+	/**
+	 * Round of the SimulationEngine when the state was captured. Jets jump to their starting locations
+	 * between rounds, so states of different rounds are not interpolated.
+	 */
+	int round = -1;
+
+	int numJets = 0;
+	double[] jetX = new double[0], jetY = new double[0];
+	boolean[] dead = new boolean[0];
+
+	int numProjectiles = 0;
+	double[] projectileX = new double[0], projectileY = new double[0];
+	double[] projectileXVel = new double[0], projectileYVel = new double[0];
+	int[] owner = new int[0];
+
+	/**
+	 * Copy the current positions of engine's Jets and Projectiles, captured at time
+	 */
+	void capture(SimulationEngine engine, long time) {
+		this.time = time;
+		round = engine.getRounds();
+
+		List<Jet> jets = engine.getJets();
+		reserveJets(jets.size());
+		numJets = jets.size();
+		for (int i=0; i<numJets; ++i) {
+			Jet j = jets.get(i);
+			jetX[i] = j.getX();
+			jetY[i] = j.getY();
+			dead[i] = j.isDead();
+		}
+
+		ProjectilePool projectiles = engine.getProjectiles();
+		reserveProjectiles(projectiles.size());
+		numProjectiles = projectiles.size();
+		for (int i=0; i<numProjectiles; ++i) {
+			projectileX[i] = projectiles.getX(i);
+			projectileY[i] = projectiles.getY(i);
+			projectileXVel[i] = projectiles.getXVel(i);
+			projectileYVel[i] = projectiles.getYVel(i);
+			owner[i] = projectiles.getOwner(i);
+		}
+	}
+
+	/**
+	 * Make this state a copy of other
+	 */
+	void copy(RenderState other) {
+		time = other.time;
+		round = other.round;
+
+		reserveJets(other.numJets);
+		numJets = other.numJets;
+		System.arraycopy(other.jetX, 0, jetX, 0, numJets);
+		System.arraycopy(other.jetY, 0, jetY, 0, numJets);
+		System.arraycopy(other.dead, 0, dead, 0, numJets);
+
+		reserveProjectiles(other.numProjectiles);
+		numProjectiles = other.numProjectiles;
+		System.arraycopy(other.projectileX, 0, projectileX, 0, numProjectiles);
+		System.arraycopy(other.projectileY, 0, projectileY, 0, numProjectiles);
+		System.arraycopy(other.projectileXVel, 0, projectileXVel, 0, numProjectiles);
+		System.arraycopy(other.projectileYVel, 0, projectileYVel, 0, numProjectiles);
+		System.arraycopy(other.owner, 0, owner, 0, numProjectiles);
+	}
+
+	private void reserveJets(int n) {
+		if (jetX.length >= n) return;
+		jetX = Arrays.copyOf(jetX, n);
+		jetY = Arrays.copyOf(jetY, n);
+		dead = Arrays.copyOf(dead, n);
+	}
+
+	private void reserveProjectiles(int n) {
+		if (projectileX.length >= n) return;
+		n = Math.max(n, 2 * projectileX.length);
+		projectileX = Arrays.copyOf(projectileX, n);
+		projectileY = Arrays.copyOf(projectileY, n);
+		projectileXVel = Arrays.copyOf(projectileXVel, n);
+		projectileYVel = Arrays.copyOf(projectileYVel, n);
+		owner = Arrays.copyOf(owner, n);
+	}
+
+}
@@ -0,0 +1,147 @@
+package game;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *Draws the arena, Jets and Projectiles between two RenderStates. The arena never changes, so it is drawn
+ *once into a VolatileImage which is copied onto every frame and redrawn only if its contents are lost.
+ *Every Jet and Projectile is drawn by copying a small image of its disk, made once for each color, rather
+ *than by filling an oval and changing the color of the Graphics for each one.
+ *
+ *A Renderer must only be used by one thread at a time.
+ */
+class Renderer {
+
+	private final int arenaRadius;
+	private final int jetRadius;
+	private final int projectileRadius;
+
+	/**
+	 * Color of each Jet and its Projectiles, by id
+	 */
+	private final Color[] colors;
+
+	/**
+	 * Image of the arena on a black background
+	 */
+	private VolatileImage background;
+
+	/**
+	 * Images of the disk of each Jet and of its Projectiles, by id, made for the GraphicsConfiguration config
+	 */
+	private Image[] jetSprites, projectileSprites;
+	private GraphicsConfiguration config;
+
+	/**
+	 * Construct Renderer for Jets with colors by id
+	 */
+	Renderer(int arenaRadius, int jetRadius, int projectileRadius, Color[] colors) {
+		this.arenaRadius = arenaRadius;
+		this.jetRadius = jetRadius;
+		this.projectileRadius = projectileRadius;
+		this.colors = colors.clone();
+	}
+
+	/**
+	 * Draw the state alpha of the way from previous to latest with g, which draws to config. Jets are
+	 * interpolated between the two states and Projectiles are moved back from latest along their paths,
+	 * which is the same for Projectiles that move in straight lines but needs no matching of Projectiles.
+	 */
+	void draw(Graphics2D g, GraphicsConfiguration config, RenderState previous, RenderState latest, double alpha) {
+
+		if (config != this.config) makeSprites(config);
+		drawBackground(g, config);
+
+		//Jets jump to their starting locations when a round begins
+		boolean interpolate = previous.round == latest.round;
+
+		for (int i=0; i<latest.numJets; ++i) {
+			if (latest.dead[i]) continue;
+			double x = latest.jetX[i];
+			double y = latest.jetY[i];
+			if (interpolate && i < previous.numJets) {
+				x = previous.jetX[i] + alpha * (x - previous.jetX[i]);
+				y = previous.jetY[i] + alpha * (y - previous.jetY[i]);
+			}
+			g.drawImage(jetSprites[i], screen(x, jetRadius), screen(-y, jetRadius), null);
+		}
+
+		//Paint each Projectile in the color of its Jet
+		double back = 1 - alpha;
+		for (int i=0; i<latest.numProjectiles; ++i) {
+			double x = latest.projectileX[i] - back * latest.projectileXVel[i];
+			double y = latest.projectileY[i] - back * latest.projectileYVel[i];
+			g.drawImage(projectileSprites[latest.owner[i]], screen(x, projectileRadius), screen(-y, projectileRadius), null);
+		}
+	}
+
+	/**
+	 * Return the screen coordinate of the corner of a disk with radius centered on arena coordinate v
+	 */
+	private int screen(double v, int radius) {
+		return (int) (v - radius + arenaRadius);
+	}
+
+	/**
+	 * Copy the arena onto g, redrawing it first if it has not been drawn for config or has been lost
+	 */
+	private void drawBackground(Graphics2D g, GraphicsConfiguration config) {
+		do {
+			int status = background == null ? VolatileImage.IMAGE_INCOMPATIBLE : background.validate(config);
+			if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+				if (background != null) background.flush();
+				background = config.createCompatibleVolatileImage(2 * arenaRadius, 2 * arenaRadius);
+			}
+			if (status != VolatileImage.IMAGE_OK) {
+				Graphics2D b = background.createGraphics();
+				b.setColor(Color.BLACK);
+				b.fillRect(0, 0, 2 * arenaRadius, 2 * arenaRadius);
+				b.setColor(Color.WHITE);
+				b.fillOval(0, 0, 2 * arenaRadius, 2 * arenaRadius);
+				b.dispose();
+			}
+			g.drawImage(background, 0, 0, null);
+		} while (background.contentsLost());
+	}
+
+	/**
+	 * Make the images of Jets and Projectiles for config, one of each for every color
+	 */
+	private void makeSprites(GraphicsConfiguration config) {
+		this.config = config;
+		jetSprites = new Image[colors.length];
+		projectileSprites = new Image[colors.length];
+		Map<Color,Image[]> made = new HashMap<Color,Image[]>();
+		for (int i=0; i<colors.length; ++i) {
+			Image[] sprites = made.get(colors[i]);
+			if (sprites == null) {
+				sprites = new Image[] {disk(config, jetRadius, colors[i]), disk(config, projectileRadius, colors[i])};
+				made.put(colors[i], sprites);
+			}
+			jetSprites[i] = sprites[0];
+			projectileSprites[i] = sprites[1];
+		}
+	}
+
+	/**
+	 * Return an image of a disk of radius and color on a transparent background, which Java2D can keep
+	 * in video memory
+	 */
+	private static Image disk(GraphicsConfiguration config, int radius, Color color) {
+		BufferedImage image = config.createCompatibleImage(2 * radius, 2 * radius, Transparency.BITMASK);
+		Graphics2D g = image.createGraphics();
+		g.setColor(color);
+		g.fillOval(0, 0, 2 * radius, 2 * radius);
+		g.dispose();
+		return image;
+	}
+
+}
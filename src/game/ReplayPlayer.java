@@ -0,0 +1,248 @@
+package game;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import weka.classifiers.trees.RandomForest;
+
+import jet.Jet;
+
+import learn.JetTrainer;
+import learn.MyFeatureGenerator;
+import learn.SampleJournal;
+import learn.SamplingPolicy;
+
+/**
+ *An InputSource which plays back a session recorded by a ReplayRecorder, one tick per poll. A JetTrainer
+ *which follows the recording publishes its trained Models at the ticks they were published when the
+ *session was recorded, waiting for training if necessary, so that a SimulationEngine driven by the
+ *ReplayPlayer repeats the recorded session exactly however fast it runs.
+ *
+ *Usage: ReplayPlayer recording [journal]. The session is simulated as fast as possible without a display,
+ *starting from a copy of journal if the recorded session started from one, and a summary is printed whose
+ *checksum identifies the final state of the arena.
+ */
+public class ReplayPlayer implements InputSource, Closeable {
+
+	private final File file;
+	private final DataInputStream in;
+
+	private final long seed;
+	private final int capacity;
+	private final int stride;
+	private final boolean onLabelChange;
+	private final boolean skipNoAction;
+	private final double minDelta;
+	private final int numJets;
+	private final int numTeams;
+
+	/**
+	 * Number of ticks left in the current run of repeated ticks
+	 */
+	private int repeats = 0;
+
+	private boolean up, down, left, right;
+	private double aimX, aimY;
+
+	private JetTrainer jt;
+	private long ticks = 0;
+
+	/**
+	 * Open the recording in file. Throws IOException if the file is not a recording.
+	 */
+	public ReplayPlayer(File file) throws IOException {
+		this.file = file;
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != ReplayRecorder.MAGIC) throw new IOException(file + " is not a recording.");
+			int version = in.readInt();
+			if (version != ReplayRecorder.VERSION) throw new IOException("Recording " + file + " has unsupported version " + version + ".");
+			seed = in.readLong();
+			capacity = in.readInt();
+			stride = in.readInt();
+			onLabelChange = in.readBoolean();
+			skipNoAction = in.readBoolean();
+			minDelta = in.readDouble();
+			numJets = in.readInt();
+			numTeams = in.readInt();
+		}
+		catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Make jt sample ticks as the recorded JetTrainer did and publish only the Models which were in use at
+	 * each tick of the recording. jt must have been trained as the recorded JetTrainer was before the
+	 * recording began.
+	 */
+	public void follow(JetTrainer jt) {
+		this.jt = jt;
+		jt.setSamplingPolicy(getSamplingPolicy());
+		jt.setModelLimit(jt.getModelVersion());
+	}
+
+	/**
+	 * Return True if the recording has ticks which have not been played
+	 */
+	public boolean hasNext() {
+		if (repeats > 0) return true;
+		try {
+			in.mark(1);
+			int b = in.read();
+			in.reset();
+			return b >= 0;
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Recording " + file + " could not be read.", e);
+		}
+	}
+
+	/**
+	 * Read the input of the next tick, and wait for the Model recorded for it if it changes
+	 */
+	@Override
+	public void poll() {
+		ticks += 1;
+		if (repeats > 0) {
+			repeats -= 1;
+			return;
+		}
+
+		try {
+			int record = in.read();
+			if (record < 0) throw new IllegalStateException("Recording " + file + " has ended.");
+			if ((record & ReplayRecorder.REPEAT) != 0) {
+				repeats = record & ~ReplayRecorder.REPEAT;
+				return;
+			}
+
+			up = (record & ReplayRecorder.UP) != 0;
+			down = (record & ReplayRecorder.DOWN) != 0;
+			left = (record & ReplayRecorder.LEFT) != 0;
+			right = (record & ReplayRecorder.RIGHT) != 0;
+			if ((record & ReplayRecorder.AIM_SHORT) != 0) {
+				aimX = in.readShort();
+				aimY = in.readShort();
+			}
+			if ((record & ReplayRecorder.AIM_DOUBLE) != 0) {
+				aimX = in.readDouble();
+				aimY = in.readDouble();
+			}
+			if ((record & ReplayRecorder.MODEL) != 0) useModel(in.readInt());
+		}
+
+		catch (IOException e) {
+			throw new IllegalStateException("Recording " + file + " could not be read.", e);
+		}
+	}
+
+	/**
+	 * Publish Models of the JetTrainer up to version once they have been trained
+	 */
+	private void useModel(int version) {
+		if (jt == null) return;
+		jt.setModelLimit(version);
+		try {
+			jt.awaitModels(version);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for training.", e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {in.close();}
+
+	public long getSeed() {return seed;}
+	public int getCapacity() {return capacity;}
+	
+	/**
+	 * Return a new SamplingPolicy with the settings of the recorded JetTrainer
+	 */
+	public SamplingPolicy getSamplingPolicy() {
+		return new SamplingPolicy(stride, onLabelChange, skipNoAction, minDelta);
+	}
+	public int getNumJets() {return numJets;}
+	public int getNumTeams() {return numTeams;}
+
+	/**
+	 * Return the number of ticks played
+	 */
+	public long getTicks() {return ticks;}
+
+	@Override
+	public boolean isUp() {return up;}
+	@Override
+	public boolean isDown() {return down;}
+	@Override
+	public boolean isLeft() {return left;}
+	@Override
+	public boolean isRight() {return right;}
+	@Override
+	public double getAimX() {return aimX;}
+	@Override
+	public double getAimY() {return aimY;}
+
+	/**
+	 * Return a checksum of the positions of engine's Jets and Projectiles, its rounds and its ticks
+	 */
+	public static long checksum(SimulationEngine engine) {
+		long h = engine.getTotalTicks() * 31 + engine.getRounds();
+		for (Jet j: engine.getJets()) {
+			h = h * 31 + Double.doubleToLongBits(j.getX());
+			h = h * 31 + Double.doubleToLongBits(j.getY());
+			h = h * 31 + (j.isDead() ? 1 : 0);
+		}
+		for (int i=0; i<engine.getProjectiles().size(); ++i) {
+			h = h * 31 + Double.doubleToLongBits(engine.getProjectiles().getX(i));
+			h = h * 31 + Double.doubleToLongBits(engine.getProjectiles().getY(i));
+		}
+		return h;
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		if (args.length < 1) {
+			System.out.println("Usage: ReplayPlayer recording [journal|- [model]]");
+			return;
+		}
+
+		ReplayPlayer player = new ReplayPlayer(new File(args[0]));
+		JetTrainer jt = new JetTrainer(new MyFeatureGenerator(), new RandomForest(), player.getCapacity());
+		jt.setSeed(player.getSeed());
+		jt.setModelLimit(0);
+
+		//The model is published before the journal is trained on, as it was in the session
+		if (args.length > 2) jt.importModel(new File(args[2]));
+
+		//The journal is written to as the session is simulated, so a copy is used
+		if (args.length > 1 && !args[1].equals("-")) {
+			File copy = File.createTempFile("replay", ".journal");
+			copy.deleteOnExit();
+			Files.copy(new File(args[1]).toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			jt.useJournal(new SampleJournal(copy)).get();
+		}
+
+		player.follow(jt);
+		SimulationEngine engine = new SimulationEngine(jt, jt, player, player.getNumJets(), player.getNumTeams());
+
+		long start = System.nanoTime();
+		while (player.hasNext()) engine.step();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		player.close();
+
+		System.out.println("Replayed " + Long.toString(player.getTicks()) + " ticks over " + Integer.toString(engine.getRounds())
+				+ " rounds with " + Integer.toString(jt.getModelVersion()) + " models in " + String.format("%.2f", seconds)
+				+ " s (" + String.format("%.0f", player.getTicks() / seconds) + " ticks/s). Checksum " + Long.toHexString(checksum(engine)) + ".");
+	}
+
+}
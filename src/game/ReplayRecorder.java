@@ -0,0 +1,213 @@
+package game;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import learn.JetTrainer;
+import learn.SamplingPolicy;
+
+/**
+ *An InputSource which passes on the input of another InputSource and records it to a file, so that the
+ *session can be simulated again by a ReplayPlayer. The file begins with a header holding the seed,
+ *capacity and SamplingPolicy settings of the JetTrainer and the number of Jets and teams, followed by one
+ *record per tick. Recordings of earlier versions moved non-user Jets differently and cannot be replayed.
+ *
+ *A record is one byte holding the pressed keys and flags for what follows it: the aim, as two shorts if
+ *both of its coordinates are whole numbers that fit and as two doubles otherwise, and the version of the
+ *JetTrainer's Model. Each is only written when it changes. Runs of ticks which repeat the previous tick
+ *exactly are written as one byte with the high bit set and the length of the run, less one, below it.
+ *
+ *So that the Model in use at every tick is known, the JetTrainer publishes newly trained Models only at the
+ *beginning of a tick, when the recorder is polled.
+ */
+public class ReplayRecorder implements InputSource, Closeable {
+
+	static final int MAGIC = 0x534A5250;
+	static final int VERSION = 3;
+
+	/**
+	 * Bits of a record for the keys and for each value which follows
+	 */
+	static final int UP = 1, DOWN = 2, LEFT = 4, RIGHT = 8;
+	static final int AIM_SHORT = 0x10, AIM_DOUBLE = 0x20, MODEL = 0x40;
+
+	/**
+	 * High bit of a run of repeated ticks, and the longest run in one byte
+	 */
+	static final int REPEAT = 0x80;
+	static final int MAX_RUN = 128;
+
+	private final InputSource input;
+	private final JetTrainer jt;
+	private final File file;
+	private DataOutputStream out;
+
+	/**
+	 * Keys, aim and Model version of the last record, or -1 if nothing has been recorded
+	 */
+	private int lastKeys = -1;
+	private double lastAimX, lastAimY;
+	private int lastVersion = -1;
+
+	/**
+	 * Number of ticks repeating the last record which have not been written yet
+	 */
+	private int run = 0;
+
+	private long ticks = 0;
+
+	/**
+	 * Input of the current tick, read from input when polled so that the tick uses exactly the recorded input
+	 */
+	private volatile boolean up, down, left, right;
+	private volatile double aimX, aimY;
+
+	/**
+	 * Construct ReplayRecorder which records the input of input and the Models of jt to file, for an
+	 * arena of numJets Jets across numTeams teams. Later Models of jt are held back until a tick begins.
+	 * The SamplingPolicy of jt must not be replaced while recording.
+	 */
+	public ReplayRecorder(File file, InputSource input, JetTrainer jt, int numJets, int numTeams) throws IOException {
+		this.file = file;
+		this.input = input;
+		this.jt = jt;
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(jt.getSeed());
+		out.writeInt(jt.getCapacity());
+		SamplingPolicy sampling = jt.getSamplingPolicy();
+		out.writeInt(sampling.getStride());
+		out.writeBoolean(sampling.isOnLabelChange());
+		out.writeBoolean(sampling.isSkipNoAction());
+		out.writeDouble(sampling.getMinDelta());
+		out.writeInt(numJets);
+		out.writeInt(numTeams);
+		jt.setModelLimit(jt.getModelsTrained());
+	}
+
+	/**
+	 * Poll input, publish the Models trained since the last tick and record the tick
+	 */
+	@Override
+	public synchronized void poll() {
+		input.poll();
+		up = input.isUp();
+		down = input.isDown();
+		left = input.isLeft();
+		right = input.isRight();
+		aimX = input.getAimX();
+		aimY = input.getAimY();
+
+		int version = jt.getModelsTrained();
+		jt.setModelLimit(version);
+		ticks += 1;
+		if (out == null) return;
+
+		try {
+			write(version);
+		}
+
+		catch (IOException e) {
+			e.printStackTrace();
+			System.out.println("Session will no longer be recorded to " + file + ".");
+			closeQuietly();
+		}
+	}
+
+	private void write(int version) throws IOException {
+
+		int keys = (up ? UP : 0) | (down ? DOWN : 0) | (left ? LEFT : 0) | (right ? RIGHT : 0);
+		boolean aimChanged = lastKeys < 0 || !same(aimX, lastAimX) || !same(aimY, lastAimY);
+		boolean modelChanged = version != lastVersion;
+
+		//A tick which repeats the last record only extends the current run
+		if (keys == lastKeys && !aimChanged && !modelChanged) {
+			run += 1;
+			if (run == MAX_RUN) flushRun();
+			return;
+		}
+		flushRun();
+
+		int record = keys;
+		if (aimChanged) record |= same(aimX, (short) aimX) && same(aimY, (short) aimY) ? AIM_SHORT : AIM_DOUBLE;
+		if (modelChanged) record |= MODEL;
+		out.writeByte(record);
+		if ((record & AIM_SHORT) != 0) {
+			out.writeShort((short) aimX);
+			out.writeShort((short) aimY);
+		}
+		if ((record & AIM_DOUBLE) != 0) {
+			out.writeDouble(aimX);
+			out.writeDouble(aimY);
+		}
+		if (modelChanged) out.writeInt(version);
+
+		lastKeys = keys;
+		lastAimX = aimX;
+		lastAimY = aimY;
+		lastVersion = version;
+	}
+
+	/**
+	 * Return True if a and b are the same double, distinguishing 0 from -0 which aim in different directions
+	 */
+	private static boolean same(double a, double b) {
+		return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+	}
+
+	private void flushRun() throws IOException {
+		if (run == 0) return;
+		out.writeByte(REPEAT | (run - 1));
+		run = 0;
+	}
+
+	/**
+	 * Write the remaining ticks and close the file. Models of the JetTrainer are published once trained again.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (out == null) return;
+		jt.setModelLimit(-1);
+		try {
+			flushRun();
+		}
+		finally {
+			out.close();
+			out = null;
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			out.close();
+		}
+		catch (IOException e) {}
+		out = null;
+	}
+
+	/**
+	 * Return the number of ticks recorded
+	 */
+	public synchronized long getTicks() {return ticks;}
+
+	public File getFile() {return file;}
+
+	@Override
+	public boolean isUp() {return up;}
+	@Override
+	public boolean isDown() {return down;}
+	@Override
+	public boolean isLeft() {return left;}
+	@Override
+	public boolean isRight() {return right;}
+	@Override
+	public double getAimX() {return aimX;}
+	@Override
+	public double getAimY() {return aimY;}
+
+}
@@ -0,0 +1,24 @@
+package game;
+
+import learn.WorldSnapshot;
+
+/**
+ *Records the actions of the user Jet for learning. A SimulationEngine gives a SampleRecorder the game
+ *state and user action of every tick and tells it when each round ends.
+ */
+public interface SampleRecorder {
+
+	/**
+	 * Record a Sample of the game state, represented by a WorldSnapshot and the index in it of the
+	 * perceiving Jet, and of the action the Jet took, represented by the Action code of its path
+	 * relative to its path to the origin.
+	 */
+	public void addSample(WorldSnapshot world, int index, int action);
+
+	/**
+	 * Called when a round ends. The Samples of the round are kept if keep is True, which is when the
+	 * user Jet won the round, and discarded otherwise.
+	 */
+	public void endRound(boolean keep);
+
+}
@@ -0,0 +1,169 @@
+package game;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import weka.classifiers.trees.RandomForest;
+
+import learn.JetTrainer;
+import learn.MyFeatureGenerator;
+import learn.SampleJournal;
+import learn.SampleSink;
+import learn.SelfPlayRecorder;
+import learn.WorldSnapshot;
+
+/**
+ *Generates Samples by running many headless arenas at once, one per thread of a pool. The user Jet
+ *of each arena is driven by its own InputSource, and the Samples of every round it wins are sent to a
+ *shared SampleSink. Non-user Jets of each arena are moved by its own Policy, by default a RandomPolicy,
+ *so that rounds are played against moving opponents before any classifier is trained.
+ *
+ *Usage: SelfPlay [arenas] [ticks per arena] [seed] [journal|-] [capacity] [model]. Pre-trains a JetTrainer
+ *which stores up to capacity Samples, 10000 by default, on the Samples of all arenas and, if a journal is
+ *given, keeps them in it so that Game starts with them. If a model is given, the trained Model is written
+ *to it for Game to load without training.
+ */
+public class SelfPlay {
+
+	/**
+	 * Creates the InputSource of each arena
+	 */
+	public interface Inputs {
+		public InputSource create(int arena);
+	}
+
+	/**
+	 * Creates the Policy of each arena
+	 */
+	public interface Policies {
+		public Policy create(int arena);
+	}
+
+	/**
+	 * Policy of non-user Jets which never move
+	 */
+	public static final Policy IDLE = new Policy() {
+		@Override
+		public void getActions(WorldSnapshot world, int[] indices, int[] actions) {
+			Arrays.fill(actions, 0, indices.length, Action.IDLE);
+		}
+
+		@Override
+		public boolean isReady() {return false;}
+	};
+
+	private final SampleSink sink;
+	private final int arenas;
+	private final ExecutorService pool;
+
+	private Policies policies;
+
+	/**
+	 * Maximum number of Samples kept from a single round
+	 */
+	private int roundCapacity = 10000;
+
+	private Inputs inputs;
+
+	/**
+	 * Construct SelfPlay which runs arenas arenas on threads threads, sending Samples to sink. The user
+	 * Jet of each arena is driven by a RandomInputSource and its other Jets by a RandomPolicy, both seeded
+	 * with seed plus the arena's number.
+	 */
+	public SelfPlay(SampleSink sink, int arenas, int threads, final long seed) {
+		if (arenas <= 0) throw new IllegalArgumentException("'arenas' must be greater than zero.");
+		this.sink = sink;
+		this.arenas = arenas;
+		pool = Executors.newFixedThreadPool(threads);
+		inputs = new Inputs() {
+			@Override
+			public InputSource create(int arena) {return new RandomInputSource(seed + arena, 200);}
+		};
+		policies = new Policies() {
+			@Override
+			public Policy create(int arena) {return new RandomPolicy(seed + arena, 200);}
+		};
+	}
+
+	/**
+	 * Run every arena for ticks ticks. Return the number of Samples sent to the sink.
+	 */
+	public long run(final long ticks) throws InterruptedException, ExecutionException {
+
+		List<Future<Long>> results = new ArrayList<Future<Long>>();
+		for (int a=0; a<arenas; ++a) {
+			final SelfPlayRecorder recorder = new SelfPlayRecorder(new MyFeatureGenerator(), sink, roundCapacity);
+			final SimulationEngine engine = new SimulationEngine(recorder, policies.create(a), inputs.create(a));
+			results.add(pool.submit(new Callable<Long>() {
+				@Override
+				public Long call() {
+					for (long k=0; k<ticks; ++k) engine.step();
+					return recorder.getSent();
+				}
+			}));
+		}
+
+		long sent = 0;
+		for (Future<Long> r: results) sent += r.get();
+		return sent;
+	}
+
+	/**
+	 * Stop the threads of the pool once running arenas finish
+	 */
+	public void shutdown() {pool.shutdown();}
+
+	/**
+	 * Move the non-user Jets of every arena with policy, which must then be thread-safe
+	 */
+	public void setPolicy(final Policy policy) {
+		if (policy == null) throw new IllegalArgumentException("'policy' must not be null.");
+		policies = new Policies() {
+			@Override
+			public Policy create(int arena) {return policy;}
+		};
+	}
+
+	public void setPolicies(Policies policies) {this.policies = policies;}
+
+	public void setInputs(Inputs inputs) {this.inputs = inputs;}
+
+	public void setRoundCapacity(int roundCapacity) {this.roundCapacity = roundCapacity;}
+
+	public static void main(String[] args) throws Exception {
+
+		int arenas = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		long ticks = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+		int capacity = args.length > 4 ? Integer.parseInt(args[4]) : 10000;
+
+		JetTrainer jt = new JetTrainer(new MyFeatureGenerator(), new RandomForest(), capacity);
+		if (args.length > 3 && !args[3].equals("-")) jt.useJournal(new SampleJournal(new File(args[3]))).get();
+
+		SelfPlay selfPlay = new SelfPlay(jt, arenas, Runtime.getRuntime().availableProcessors(), seed);
+		long start = System.nanoTime();
+		long sent = selfPlay.run(ticks);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		selfPlay.shutdown();
+
+		System.out.println("Simulated " + Long.toString(arenas * ticks) + " ticks in " + Integer.toString(arenas) + " arenas in "
+				+ String.format("%.2f", seconds) + " s (" + String.format("%.0f", sent / seconds) + " samples/s, "
+				+ Long.toString(sent) + " samples).");
+		jt.train().get();
+
+		//The trained Model can be loaded by a game without training
+		if (args.length > 5 && jt.getModelVersion() > 0) {
+			jt.exportModel(new File(args[5]));
+			System.out.println("Wrote model to " + args[5] + ".");
+		}
+	}
+
+}
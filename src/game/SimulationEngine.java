@@ -0,0 +1,481 @@
+package game;
+
+import java.awt.Color;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import jet.Geometry;
+import jet.Jet;
+import jet.ProjectilePool;
+import jet.SpatialGrid;
+
+import learn.JetTrainer;
+import learn.WorldSnapshot;
+
+/**
+ *Headless simulation of the Smart Jets game. Each call to step() advances the game by one fixed
+ *tick: user input is sampled from an InputSource, non-user Jets are moved by a Policy, and Jets
+ *and Projectiles are moved and checked for collisions. The engine has no dependency on a display
+ *and runs as fast as step() is called.
+ */
+public class SimulationEngine {
+
+	/**
+	 * Radius of circular arena that Jets fight inside of
+	 */
+	public static final int ARENA_RADIUS = 250;
+
+	/**
+	 * Jets fire every FIRE_INTERVAL ticks
+	 */
+	public static final int FIRE_INTERVAL = 100;
+
+	public static final int JET_RADIUS = 10;
+	public static final int PROJECTILE_RADIUS = 2;
+
+	/**
+	 * Collects samples of user actions
+	 */
+	private final SampleRecorder recorder;
+
+	private final InputSource input;
+
+	/**
+	 * Produces movement for non-user Jets
+	 */
+	private Policy policy;
+
+	/**
+	 * Number of ticks since the last restart
+	 */
+	private int ticks = 0;
+
+	/**
+	 * Number of ticks since construction
+	 */
+	private long totalTicks = 0;
+
+	/**
+	 * Number of times the game has been restarted
+	 */
+	private int rounds = 0;
+
+	/**
+	 * Number of Jets that are currently alive, in total and on each team
+	 */
+	private int alive;
+	private final int[] aliveOnTeam;
+
+	/**
+	 * Broad phase for collisions. Cells are as wide as the largest collision distance.
+	 */
+	private final SpatialGrid grid = new SpatialGrid(ARENA_RADIUS, 2 * JET_RADIUS);
+
+	/**
+	 * Indices of Jets returned by grid queries, their positions, and their squared distances from the
+	 * point of the query
+	 */
+	private int[] nearJets = new int[0];
+	private double[] nearX = new double[0], nearY = new double[0], nearDist = new double[0];
+
+	/**
+	 * Snapshot of the game state at the start of the tick, built once per tick and read by both the
+	 * SampleRecorder and the Policy
+	 */
+	private final WorldSnapshot world = new WorldSnapshot();
+
+	/**
+	 * Indices of the living non-user Jets passed to the Policy and their actions, reused while their
+	 * number is unchanged
+	 */
+	private int[] policyIndices = new int[0];
+	private int[] policyActions = new int[0];
+
+	/**
+	 * Team of the Jet whose target is being chosen, and a Filter which accepts living Jets of other teams
+	 */
+	private int shooterTeam;
+	private final SpatialGrid.Filter enemyOfShooter = new SpatialGrid.Filter() {
+		@Override
+		public boolean accept(int i) {
+			Jet k = jets.get(i);
+			return !k.isDead() && k.getTeam() != shooterTeam;
+		}
+	};
+
+	/**
+	 * Holds the Projectiles of all Jets. The owner of each Projectile is the id of its Jet.
+	 */
+	private final ProjectilePool projectiles = new ProjectilePool(PROJECTILE_RADIUS);
+
+	/**
+	 * Colors of the first teams. Further teams reuse them.
+	 */
+	private static final Color[] TEAM_COLORS = {Color.BLUE, Color.RED, Color.ORANGE, Color.MAGENTA,
+			Color.GREEN, Color.CYAN, Color.PINK, Color.YELLOW};
+
+	private Jet userJet;
+
+	/**
+	 * Every Jet, in order of id. Jets are never removed, so the id of a Jet is its index.
+	 */
+	private final List<Jet> jets = new ArrayList<Jet>();
+	private final List<Jet> jetsView = Collections.unmodifiableList(jets);
+
+	private final int numTeams;
+
+	/**
+	 * Records the latencies of the phases of every tick, or null
+	 */
+	private Metrics metrics;
+
+	/**
+	 * Construct SimulationEngine with the JetTrainer that learns from the user, which also moves
+	 * non-user Jets, and the source of user input.
+	 */
+	public SimulationEngine(JetTrainer jt, InputSource input) {
+		this(jt, jt, input);
+	}
+
+	/**
+	 * Construct SimulationEngine with the SampleRecorder that records the user's actions, the Policy
+	 * that moves non-user Jets and the source of user input. The user Jet fights two enemy Jets.
+	 */
+	public SimulationEngine(SampleRecorder recorder, Policy policy, InputSource input) {
+		this(recorder, policy, input, 3, 2);
+	}
+
+	/**
+	 * Construct SimulationEngine with numJets Jets, including the user Jet, split as evenly as possible
+	 * into numTeams teams. The user Jet is on team 0, which is never larger than the other teams. Jets
+	 * of a team have consecutive ids and start next to each other on rings inside the edge of the arena.
+	 */
+	public SimulationEngine(SampleRecorder recorder, Policy policy, InputSource input, int numJets, int numTeams) {
+		if (policy == null) throw new IllegalArgumentException("'policy' must not be null.");
+		if (numTeams < 2) throw new IllegalArgumentException("'numTeams' must be at least 2.");
+		if (numJets < numTeams) throw new IllegalArgumentException("'numJets' must be at least 'numTeams'.");
+		this.recorder = recorder;
+		this.input = input;
+		this.policy = policy;
+		this.numTeams = numTeams;
+		aliveOnTeam = new int[numTeams];
+
+		//Add user Jet
+		userJet = new Jet(new Point2D.Double(0,0), 0, TEAM_COLORS[0], JET_RADIUS, projectiles, jets.size());
+		jets.add(userJet);
+
+		//Add non-user Jets team by team, with the larger teams last
+		double[] starts = startingLocations(numJets - 1);
+		for (int t=0; t<numTeams; ++t) {
+			int size = numJets / numTeams + (t >= numTeams - numJets % numTeams ? 1 : 0);
+			if (t == 0) size -= 1;
+			for (int k=0; k<size; ++k) {
+				int n = jets.size() - 1;
+				Point2D loc = new Point2D.Double(starts[2*n], starts[2*n + 1]);
+				jets.add(new Jet(loc, t, TEAM_COLORS[t % TEAM_COLORS.length], JET_RADIUS, projectiles, jets.size()));
+			}
+		}
+
+		resetAlive();
+	}
+
+	/**
+	 * Return the x and y coordinates of the starting locations of n non-user Jets, spread evenly around
+	 * rings from the edge of the arena inwards. If the rings are full, Jets are added to them again.
+	 */
+	private static double[] startingLocations(int n) {
+		double[] starts = new double[2 * n];
+		int placed = 0;
+		while (placed < n) {
+			for (double r=ARENA_RADIUS - JET_RADIUS; r >= 2 * JET_RADIUS && placed < n; r -= 2 * JET_RADIUS) {
+				int count = Math.min(n - placed, (int) (2 * Math.PI * r / (2 * JET_RADIUS)));
+				for (int k=0; k<count; ++k) {
+					double theta = 2 * Math.PI * k / count;
+					starts[2*placed] = r * Math.cos(theta);
+					starts[2*placed + 1] = r * Math.sin(theta);
+					placed += 1;
+				}
+			}
+		}
+		return starts;
+	}
+
+	/**
+	 * Record the latencies of the phases of every tick in metrics, which also counts the Jets and
+	 * Projectiles of the SimulationEngine, or stop recording if metrics is null
+	 */
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+		if (metrics != null) metrics.setEngine(this);
+	}
+
+	public Metrics getMetrics() {return metrics;}
+
+	/**
+	 * Replace the Policy which moves non-user Jets.
+	 */
+	public void setPolicy(Policy policy) {
+		if (policy == null) throw new IllegalArgumentException("'policy' must not be null.");
+		this.policy = policy;
+	}
+
+	/**
+	 * Advance the game by n ticks.
+	 */
+	public void step(int n) {
+		for (int k=0; k<n; ++k) step();
+	}
+
+	/**
+	 * Advance the game by one tick. Saves game state and user action to the SampleRecorder, moves Jets
+	 * and Projectiles, detects collisions and restarts the game when a round is over. The Policy moves
+	 * non-user Jets from the same game state that the user action is recorded for.
+	 */
+	public void step() {
+
+		long start = now();
+		int userIndex = userJet.getId();
+		input.poll();
+
+		//Snapshot the game state once for both the recorded Sample and the Policy
+		world.build(jets);
+
+		//Record user action relative to the path to the origin, rounded to the nearest direction
+		int action = Action.fromKeys(input.isUp(), input.isDown(), input.isLeft(), input.isRight());
+		recorder.addSample(world, userIndex, Action.relative(action, userJet.angleToOrigin()));
+		long moveStart = now();
+
+		boolean fire = ticks % FIRE_INTERVAL == 0;
+		ticks += 1;
+		totalTicks += 1;
+		projectiles.move();
+
+		//Fire projectiles at the nearest enemies and move user Jet
+		if (fire) grid.build(jets);
+		for (Jet j: jets) {
+			if (fire && !j.isDead()) {
+				if (j == userJet) j.pointTo(input.getAimX(), input.getAimY());
+				else {
+					Jet target = nearestEnemy(j);
+					if (target != null) j.pointTo(target.getX(), target.getY());
+				}
+				j.fireProjectile();
+			}
+
+			if (j == userJet) {
+				if (action != Action.IDLE) j.move(Action.cos(action), Action.sin(action));
+				returnToBoard(j);
+			}
+		}
+
+		//Get angles for all living non-user Jets from Policy at once
+		long policyStart = now(), policyEnd = policyStart;
+		if (policy.isReady()) {
+			int n = alive - (userJet.isDead() ? 0 : 1);
+			if (policyIndices.length != n) {
+				policyIndices = new int[n];
+				policyActions = new int[n];
+			}
+			int[] indices = policyIndices;
+			n = 0;
+			for (Jet j: jets) {
+				if (j != userJet && !j.isDead()) indices[n++] = j.getId();
+			}
+			policy.getActions(world, indices, policyActions);
+			policyEnd = now();
+
+			//Move non-user Jets by rotating the unit vector of their paths to the origin by their actions
+			for (int k=0; k<n; ++k) {
+				int b = policyActions[k];
+				if (b == Action.IDLE) continue;
+				Jet j = jets.get(indices[k]);
+				double r = j.distanceToOrigin();
+				double toX = r > 0 ? -j.getX() / r : 1;
+				double toY = r > 0 ? -j.getY() / r : 0;
+				j.move(toX * Action.cos(b) - toY * Action.sin(b), toY * Action.cos(b) + toX * Action.sin(b));
+			}
+		}
+		for (Jet j: jets) {
+			if (j != userJet) returnToBoard(j);
+		}
+		removeLostProjectiles();
+
+		long collisionStart = now();
+		collisions();
+		long collisionEnd = now();
+
+		if (userJet.isDead()) restart(false);
+		else if (alive == aliveOnTeam[userJet.getTeam()]) restart(true);
+
+		if (metrics != null) {
+			metrics.recordTick(now() - start, policyEnd == policyStart ? -1 : policyEnd - policyStart,
+					(policyStart - moveStart) + (collisionStart - policyEnd), collisionEnd - collisionStart);
+		}
+	}
+
+	/**
+	 * Return System.nanoTime() if the tick is being timed, or 0
+	 */
+	private long now() {return metrics == null ? 0 : System.nanoTime();}
+
+	/**
+	 * Return the closest living Jet which is not on the team of Jet j, or null if there is none.
+	 * The grid must have been built from the current positions of the Jets.
+	 */
+	private Jet nearestEnemy(Jet j) {
+		shooterTeam = j.getTeam();
+		int k = grid.nearest(j.getX(), j.getY(), jets, enemyOfShooter);
+		return k < 0 ? null : jets.get(k);
+	}
+
+	private void resetAlive() {
+		alive = jets.size();
+		Arrays.fill(aliveOnTeam, 0);
+		for (Jet j: jets) aliveOnTeam[j.getTeam()] += 1;
+	}
+
+	/**
+	 * Restarts the game. Samples of recent round are kept if train is True, which trains non-user
+	 * Jets, and discarded if train is False.
+	 */
+	private void restart(boolean train) {
+
+		//keep or remove Samples from last round
+		recorder.endRound(train);
+
+		for (Jet j: jets) {
+			j.reset();
+		}
+		projectiles.clear();
+		ticks = 0;
+		rounds += 1;
+		resetAlive();
+	}
+
+	/**
+	 * Return Jets that have left board by projecting towards origin
+	 */
+	private void returnToBoard(Jet j) {
+		double maxRadius = ARENA_RADIUS - JET_RADIUS;
+		if (!Geometry.beyond(j.squaredDistanceTo(0, 0), maxRadius)) return;
+		double locTheta = j.angleFromOrigin();
+		j.setLocation(maxRadius * Math.cos(locTheta), maxRadius * Math.sin(locTheta));
+	}
+
+	/**
+	 * Remove projectiles if they have left the board
+	 */
+	private void removeLostProjectiles() {
+		projectiles.removeOutside(ARENA_RADIUS + PROJECTILE_RADIUS);
+	}
+
+	/**
+	 * Detect collisions between Jets and Projectiles and other Jets. Only Jets in the grid cells
+	 * around a Jet or Projectile are tested against it.
+	 */
+	private void collisions() {
+
+		if (nearJets.length < jets.size()) {
+			nearJets = new int[jets.size()];
+			nearX = new double[jets.size()];
+			nearY = new double[jets.size()];
+			nearDist = new double[jets.size()];
+		}
+
+		//separate Jets if they are intersecting, testing each pair of nearby Jets once
+		grid.build(jets);
+		for (int i=0; i<jets.size(); ++i) {
+			Jet j = jets.get(i);
+			int n = grid.near(j.getX(), j.getY(), nearJets);
+			measure(j.getX(), j.getY(), n);
+			for (int m=0; m<n; ++m) {
+				int k = nearJets[m];
+				if (k > i && Geometry.within(nearDist[m], 2 * JET_RADIUS)) {
+					separateJets(jets.get(k), j);
+
+					//Both Jets have moved, so the remaining distances are measured again
+					measure(j.getX(), j.getY(), n);
+				}
+			}
+		}
+
+		//Detect collisions between Jets and enemy Projectiles at the Jets' separated positions
+		grid.build(jets);
+		for (int i=projectiles.size() - 1; i>=0; --i) {
+			double px = projectiles.getX(i);
+			double py = projectiles.getY(i);
+			int team = projectiles.getTeam(i);
+			boolean collided = false;
+			int n = grid.near(px, py, nearJets);
+			measure(px, py, n);
+			for (int m=0; m<n; ++m) {
+				Jet k = jets.get(nearJets[m]);
+				if (!k.isDead() && k.getTeam() != team) {
+					if (Geometry.within(nearDist[m], JET_RADIUS + PROJECTILE_RADIUS)) {
+						collided = true;
+						k.hit();
+						if (k.isDead()) {
+							alive -= 1;
+							aliveOnTeam[k.getTeam()] -= 1;
+						}
+					}
+				}
+			}
+			if (collided) projectiles.remove(i);	//remove collided Projectiles
+		}
+	}
+
+	/**
+	 * Write to nearDist the squared distances from (x, y) to the first n Jets of nearJets, gathering their
+	 * positions so that all distances are computed by one batch kernel
+	 */
+	private void measure(double x, double y, int n) {
+		for (int m=0; m<n; ++m) {
+			Jet k = jets.get(nearJets[m]);
+			nearX[m] = k.getX();
+			nearY[m] = k.getY();
+		}
+		Geometry.squaredDistances(x, y, nearX, nearY, n, nearDist);
+	}
+
+	/**
+	 * Separate two Jets by moving them along the line between their origins
+	 */
+	private void separateJets(Jet a, Jet b) {
+
+		double distBetween  = a.distanceTo(b) - 2 * JET_RADIUS;
+		if (distBetween >= 0) return;
+
+		double aToB = a.angleTo(b);
+		double halfMove = Math.abs(distBetween) / 2.;
+		double horMove = halfMove * Math.cos(aToB);
+		double verMove = halfMove * Math.sin(aToB);
+		a.setLocation(a.getX() - horMove, a.getY() - verMove);
+		b.setLocation(b.getX() + horMove, b.getY() + verMove);
+	}
+
+	/**
+	 * Return unmodifiable view of the Jets in the game. The user Jet is always present.
+	 */
+	public List<Jet> getJets() {return jetsView;}
+
+	public Jet getUserJet() {return userJet;}
+	public ProjectilePool getProjectiles() {return projectiles;}
+	public SampleRecorder getRecorder() {return recorder;}
+	public Policy getPolicy() {return policy;}
+	public int getTicks() {return ticks;}
+	public long getTotalTicks() {return totalTicks;}
+	public int getRounds() {return rounds;}
+	public int getAlive() {return alive;}
+
+	/**
+	 * Return the number of living Jets on team
+	 */
+	public int getAlive(int team) {return aliveOnTeam[team];}
+
+	public int getNumTeams() {return numTeams;}
+
+}
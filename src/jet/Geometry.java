@@ -0,0 +1,93 @@
+package jet;
+
+/**
+ *Batch kernels which compare one reference point against whole arrays of positions, and comparisons
+ *of squared distances. squaredDistances, squaredNorms and roots are single counted loops over primitive
+ *arrays with no branches in their bodies, which HotSpot's C2 compiler can unroll and compile to SIMD
+ *instructions. relativePolar calls atan2 and reads positions through an array of indices, so it is not
+ *vectorized and only saves the work of fetching each position through a Jet.
+ *
+ *Distances are compared through their squares so that no square root is taken for distances which are
+ *clearly different. Comparisons which are within NEAR_TIE of a tie, where rounding could decide them,
+ *branch to comparing square roots, so every comparison gives the same result as comparing the distances
+ *themselves.
+ */
+public final class Geometry {
+
+	/**
+	 * Squared distances whose ratio is within this of 1 may have equal square roots
+	 */
+	private static final double NEAR_TIE = 1e-15;
+
+	private Geometry() {}
+
+	/**
+	 * Write to out[i] the squared distance from (x, y) to (xs[i], ys[i]) for every i below n
+	 */
+	public static void squaredDistances(double x, double y, double[] xs, double[] ys, int n, double[] out) {
+		for (int i=0; i<n; ++i) {
+			double xDiff = xs[i] - x;
+			double yDiff = ys[i] - y;
+			out[i] = xDiff * xDiff + yDiff * yDiff;
+		}
+	}
+
+	/**
+	 * Write to out[i] the squared distance from the origin to (xs[i], ys[i]) for every i below n
+	 */
+	public static void squaredNorms(double[] xs, double[] ys, int n, double[] out) {
+		for (int i=0; i<n; ++i) out[i] = xs[i] * xs[i] + ys[i] * ys[i];
+	}
+
+	/**
+	 * Write to out[i] the square root of squared[i] for every i below n
+	 */
+	public static void roots(double[] squared, int n, double[] out) {
+		for (int i=0; i<n; ++i) out[i] = Math.sqrt(squared[i]);
+	}
+
+	/**
+	 * Write to angles[k] the angle of the point (xs[p], ys[p]), where p is indices[k], as seen from (x, y)
+	 * relative to the angle reference, and to distances[k] its distance from (x, y), for every k below n.
+	 * Angles are not normalized.
+	 */
+	public static void relativePolar(double x, double y, double reference, double[] xs, double[] ys, int[] indices, int n,
+			double[] angles, double[] distances) {
+		for (int k=0; k<n; ++k) {
+			double xDiff = xs[indices[k]] - x;
+			double yDiff = ys[indices[k]] - y;
+			angles[k] = Math.atan2(yDiff, xDiff) - reference;
+			distances[k] = Math.sqrt(xDiff * xDiff + yDiff * yDiff);
+		}
+	}
+
+	/**
+	 * Return True if the distance whose square is squared is less than radius
+	 */
+	public static boolean within(double squared, double radius) {
+		double r2 = radius * radius;
+		if (squared >= r2 * (1 + NEAR_TIE)) return false;
+		if (squared < r2 * (1 - NEAR_TIE)) return true;
+		return Math.sqrt(squared) < radius;
+	}
+
+	/**
+	 * Return True if the distance whose square is squared is greater than radius
+	 */
+	public static boolean beyond(double squared, double radius) {
+		double r2 = radius * radius;
+		if (squared <= r2 * (1 - NEAR_TIE)) return false;
+		if (squared > r2 * (1 + NEAR_TIE)) return true;
+		return Math.sqrt(squared) > radius;
+	}
+
+	/**
+	 * Return True if the distance whose square is a is less than the distance whose square is b
+	 */
+	public static boolean closer(double a, double b) {
+		if (a >= b) return false;
+		if (a < b * (1 - NEAR_TIE)) return true;
+		return Math.sqrt(a) < Math.sqrt(b);
+	}
+
+}
@@ -2,8 +2,6 @@ package jet;
 
 import java.awt.Color;
 import java.awt.geom.Point2D;
-import java.util.ArrayList;
-import java.util.List;
 
 public class Jet extends Movable{
 	
@@ -18,22 +16,39 @@ public class Jet extends Movable{
 	 */
 	private double theta = 0;
 	
-	private Color team;
+	/**
+	 * Jets on the same team do not hit each other
+	 */
+	private final int team;
+	
+	/**
+	 * Color in which the Jet and its Projectiles are displayed
+	 */
+	private final Color color;
 	
 	private boolean dead = false;
 	
-	private int projectileRadius;
+	/**
+	 * Identifies the Jet as the owner of its Projectiles in projectiles
+	 */
+	private final int id;
 	
-	private final List<Projectile> projectiles = new ArrayList<Projectile>();
+	/**
+	 * Holds the Projectiles of this Jet, and possibly those of other Jets
+	 */
+	private final ProjectilePool projectiles;
 	
 	/**
-	 * Construct Jet with Point2D starting location, Color of Jet's team, radius of Jet,
-	 * and radius of Jet's Projectiles.
+	 * Construct Jet with Point2D starting location, id of Jet's team, Color of Jet, radius of Jet,
+	 * the ProjectilePool that Jet fires Projectiles into and the id that identifies the Jet
+	 * as owner of its Projectiles in that pool.
 	 */
-	public Jet(Point2D loc, Color team, int jetRadius, int projRadius) {
+	public Jet(Point2D loc, int team, Color color, int jetRadius, ProjectilePool projectiles, int id) {
 		this.team = team;
+		this.color = color;
 		this.radius = jetRadius;
-		this.projectileRadius = projRadius;
+		this.projectiles = projectiles;
+		this.id = id;
 		x = loc.getX();
 		y = loc.getY();
 		x0 = x;
@@ -46,10 +61,20 @@ public class Jet extends Movable{
 	 */
 	public void move(double theta) {
 		
-		if (dead || Double.isNaN(theta)) return;
+		if (Double.isNaN(theta)) return;
+		move(Math.cos(theta), Math.sin(theta));
 		
-		x += Math.cos(theta);
-		y += Math.sin(theta);
+	}
+	
+	/**
+	 * Move Jet one unit along the path whose angle has cosine cos and sine sin
+	 */
+	public void move(double cos, double sin) {
+		
+		if (dead) return;
+		
+		x += cos;
+		y += sin;
 		
 	}
 	
@@ -57,32 +82,33 @@ public class Jet extends Movable{
 		this.theta = angleTo(toX, toY);
 	}
 	
-	public void moveProjectiles() {
-		for (Projectile p: projectiles) p.move();
-	}
-	
 	public void fireProjectile() {
 		if (dead) return;
-		projectiles.add(new Projectile(projectileRadius, getX(), getY(), Math.cos(theta), Math.sin(theta)));
+		projectiles.add(id, team, getX(), getY(), Math.cos(theta), Math.sin(theta));
 	}
 	
 	public void hit() {
 		dead = true;
 	}
 	
+	/**
+	 * Return Jet to its starting location alive. Projectiles fired by Jet remain in its ProjectilePool.
+	 */
 	public void reset() {
 		x = x0;
 		y = y0;
 		dead = false;
-		projectiles.clear();
 	}
 	
 	/**
-	 * Return reference to List of Projectiles belonging to Jet.
+	 * Return reference to ProjectilePool holding Projectiles fired by Jet.
 	 */
-	public List<Projectile> getProjectiles() {return projectiles;}
+	public ProjectilePool getProjectilePool() {return projectiles;}
+	
+	public int getId() {return id;}
 	
 	public boolean isDead() {return dead;}
 	public double getTheta() {return theta;}
-	public Color getTeam() {return team;}
+	public int getTeam() {return team;}
+	public Color getColor() {return color;}
 }
@@ -34,9 +34,16 @@ public class Movable {
 	public double angleFromOrigin() {return angleFrom(0,0);}
 	
 	public double distanceTo(double toX, double toY) {
+		return Math.sqrt(squaredDistanceTo(toX, toY));
+	}
+	
+	/**
+	 * Return the square of the distance to (toX, toY), which orders distances without a square root
+	 */
+	public double squaredDistanceTo(double toX, double toY) {
 		double xDiff = toX - x;
     	double yDiff = toY - y;
-    	return Math.sqrt(Math.pow(xDiff,2) + Math.pow(yDiff,2));
+    	return xDiff * xDiff + yDiff * yDiff;
 	}
 	
 	public double distanceTo(Movable m) {
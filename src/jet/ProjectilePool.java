@@ -0,0 +1,135 @@
+package jet;
+
+import java.util.Arrays;
+
+/**
+ *Stores the Projectiles of a group of Jets as parallel arrays of horizontal/vertical position,
+ *horizontal/vertical velocity and the id and team of the Jet which fired each Projectile. Projectiles are
+ *packed into indices 0 to size() - 1. Removing a Projectile moves the last Projectile into its index,
+ *and the freed index at the end is reused by the next added Projectile, so the arrays only grow to
+ *the largest number of Projectiles alive at once and adding or removing never allocates.
+ *
+ *Because removal moves the last Projectile, Projectiles should be removed while iterating from the
+ *last index to the first.
+ */
+public class ProjectilePool {
+
+	private final int radius;
+
+	private double[] x, y, dx, dy;
+	private int[] owner, team;
+
+	private int size = 0;
+
+	/**
+	 * Squared distances from the origin, reused by removeOutside
+	 */
+	private double[] norms = new double[0];
+
+	/**
+	 * Construct ProjectilePool for Projectiles of a given radius
+	 */
+	public ProjectilePool(int radius) {
+		this(radius, 64);
+	}
+
+	public ProjectilePool(int radius, int initialCapacity) {
+		if (initialCapacity <= 0) throw new IllegalArgumentException("Capacity must be greater than zero.");
+		this.radius = radius;
+		x = new double[initialCapacity];
+		y = new double[initialCapacity];
+		dx = new double[initialCapacity];
+		dy = new double[initialCapacity];
+		owner = new int[initialCapacity];
+		team = new int[initialCapacity];
+	}
+
+	/**
+	 * Add a Projectile fired by the Jet with id owner on team team at horizontal/vertical position x/y
+	 * with horizontal/vertical velocity dx/dy. Return the index of the Projectile.
+	 */
+	public int add(int owner, int team, double x, double y, double dx, double dy) {
+		if (size == this.x.length) grow();
+		this.x[size] = x;
+		this.y[size] = y;
+		this.dx[size] = dx;
+		this.dy[size] = dy;
+		this.owner[size] = owner;
+		this.team[size] = team;
+		return size++;
+	}
+
+	/**
+	 * Remove the Projectile at index i by moving the last Projectile into its place
+	 */
+	public void remove(int i) {
+		if (i < 0 || i >= size) throw new IndexOutOfBoundsException("No Projectile at index " + Integer.toString(i) + ".");
+		int last = --size;
+		x[i] = x[last];
+		y[i] = y[last];
+		dx[i] = dx[last];
+		dy[i] = dy[last];
+		owner[i] = owner[last];
+		team[i] = team[last];
+	}
+
+	/**
+	 * Remove every Projectile fired by the Jet with id owner
+	 */
+	public void removeOwner(int owner) {
+		for (int i=size - 1; i>=0; --i) {
+			if (this.owner[i] == owner) remove(i);
+		}
+	}
+
+	public void clear() {size = 0;}
+
+	/**
+	 * Remove every Projectile farther than radius from the origin. Squared distances of all Projectiles
+	 * are computed in one batch before any is removed.
+	 */
+	public void removeOutside(double radius) {
+		if (norms.length < size) norms = new double[x.length];
+		Geometry.squaredNorms(x, y, size, norms);
+
+		//Removal moves the last Projectile, which has already been tested, into the removed index
+		for (int i=size - 1; i>=0; --i) {
+			if (Geometry.beyond(norms[i], radius)) remove(i);
+		}
+	}
+
+	/**
+	 * Move every Projectile one unit of time
+	 */
+	public void move() {
+		for (int i=0; i<size; ++i) {
+			x[i] += dx[i];
+			y[i] += dy[i];
+		}
+	}
+
+	private void grow() {
+		int n = 2 * x.length;
+		x = Arrays.copyOf(x, n);
+		y = Arrays.copyOf(y, n);
+		dx = Arrays.copyOf(dx, n);
+		dy = Arrays.copyOf(dy, n);
+		owner = Arrays.copyOf(owner, n);
+		team = Arrays.copyOf(team, n);
+	}
+
+	public int size() {return size;}
+	public int getRadius() {return radius;}
+
+	public double getX(int i) {return x[i];}
+	public double getY(int i) {return y[i];}
+	public double getXVel(int i) {return dx[i];}
+	public double getYVel(int i) {return dy[i];}
+	public int getOwner(int i) {return owner[i];}
+
+	/**
+	 * Return the team of the Jet which fired the Projectile at index i
+	 */
+	public int getTeam(int i) {return team[i];}
+
+}
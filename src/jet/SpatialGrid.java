@@ -0,0 +1,215 @@
+package jet;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *Uniform grid of square cells over a square centered on the origin, used to find objects
+ *near a point without testing every object. The grid holds indices into a List of Movables and is
+ *rebuilt in O(n) from their positions by build(). Positions outside of the square are clamped to
+ *the cells on its border. Building and querying allocate nothing once the grid has grown to the
+ *number of objects. nearest() measures the objects of each cell with one batch Geometry kernel.
+ */
+public class SpatialGrid {
+
+	private final double halfWidth;
+	private final double cellSize;
+
+	/**
+	 * Number of cells along each side of the grid
+	 */
+	private final int cells;
+
+	/**
+	 * Index of the last object placed in each cell, or -1 if the cell is empty
+	 */
+	private final int[] head;
+
+	/**
+	 * Index of the object placed in the same cell before each object, or -1 if there is none
+	 */
+	private int[] next = new int[16];
+
+	/**
+	 * Cell of each object during the last build
+	 */
+	private int[] itemCell = new int[16];
+
+	/**
+	 * Number of objects placed by the last build
+	 */
+	private int size = 0;
+
+	/**
+	 * Indices, positions and squared distances of the objects of one cell during nearest()
+	 */
+	private int[] cellItems = new int[16];
+	private double[] cellX = new double[16], cellY = new double[16], cellDist = new double[16];
+
+	/**
+	 * Construct SpatialGrid covering the square from -halfWidth to halfWidth on both axes with cells
+	 * of width cellSize. Queries find every object within cellSize of a point.
+	 */
+	public SpatialGrid(double halfWidth, double cellSize) {
+		if (halfWidth <= 0 || cellSize <= 0) throw new IllegalArgumentException("'halfWidth' and 'cellSize' must be greater than zero.");
+		this.halfWidth = halfWidth;
+		this.cellSize = cellSize;
+		cells = Math.max(1, (int) Math.ceil(2 * halfWidth / cellSize));
+		head = new int[cells * cells];
+		Arrays.fill(head, -1);
+	}
+
+	/**
+	 * Place the objects of items into the grid by their current positions. Only the cells occupied
+	 * by the previous build are cleared, so the cost depends on the number of objects and not on
+	 * the number of cells.
+	 */
+	public void build(List<? extends Movable> items) {
+
+		int n = items.size();
+		clear(n);
+		for (int i=0; i<n; ++i) {
+			Movable m = items.get(i);
+			place(i, m.getX(), m.getY());
+		}
+		size = n;
+	}
+
+	/**
+	 * Place the first n points (xs[i], ys[i]) into the grid, as by build for objects at those points
+	 */
+	public void build(double[] xs, double[] ys, int n) {
+
+		clear(n);
+		for (int i=0; i<n; ++i) place(i, xs[i], ys[i]);
+		size = n;
+	}
+
+	/**
+	 * Empty the cells occupied by the previous build and make room for n objects
+	 */
+	private void clear(int n) {
+		for (int i=0; i<size; ++i) head[itemCell[i]] = -1;
+		size = 0;
+		if (next.length < n) {
+			next = new int[Math.max(n, 2 * next.length)];
+			itemCell = new int[next.length];
+		}
+	}
+
+	/**
+	 * Push object i at (x, y) onto the list of its cell
+	 */
+	private void place(int i, double x, double y) {
+		int c = cellIndex(column(x), column(y));
+		itemCell[i] = c;
+		next[i] = head[c];
+		head[c] = i;
+	}
+
+	/**
+	 * Write to out the indices of all objects in the cells neighboring the point (x, y), which include
+	 * every object within cellSize of the point, and return their number. out must be at least as long
+	 * as the number of objects.
+	 */
+	public int near(double x, double y, int[] out) {
+
+		int col = column(x);
+		int row = column(y);
+		int n = 0;
+		for (int r=Math.max(0, row - 1); r<=Math.min(cells - 1, row + 1); ++r) {
+			for (int c=Math.max(0, col - 1); c<=Math.min(cells - 1, col + 1); ++c) {
+				for (int i=head[cellIndex(c, r)]; i>=0; i=next[i]) out[n++] = i;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Return the index of the object of items closest to the point (x, y) among those accepted by
+	 * filter, or -1 if there is none. items must be the List of the last build. Cells are searched in
+	 * square rings of growing size around the cell of the point until no closer object can remain, so
+	 * the result is exact for objects that have not left their cells since the last build.
+	 */
+	public int nearest(double x, double y, List<? extends Movable> items, Filter filter) {
+
+		int col = column(x);
+		int row = column(y);
+		int best = -1;
+		double bestDist = Double.POSITIVE_INFINITY;
+		for (int r=0; r<cells; ++r) {
+			for (int dr=-r; dr<=r; ++dr) {
+				int rr = row + dr;
+				if (rr < 0 || rr >= cells) continue;
+
+				//Rows at the top and bottom of the ring are searched whole, other rows at both ends only
+				int step = dr == -r || dr == r ? 1 : Math.max(1, 2 * r);
+				for (int dc=-r; dc<=r; dc+=step) {
+					int c = col + dc;
+					if (c < 0 || c >= cells) continue;
+					int n = gather(cellIndex(c, rr), items, filter);
+					Geometry.squaredDistances(x, y, cellX, cellY, n, cellDist);
+					for (int m=0; m<n; ++m) {
+						int i = cellItems[m];
+						double dist = cellDist[m];
+						if (dist < bestDist || (dist == bestDist && i < best)) {
+							best = i;
+							bestDist = dist;
+						}
+					}
+				}
+			}
+
+			//Every object beyond this ring is at least r cells from the point
+			if (best >= 0 && bestDist <= r * cellSize * r * cellSize) break;
+		}
+		return best;
+	}
+
+	/**
+	 * Write to cellItems, cellX and cellY the objects of cell accepted by filter and their positions, and
+	 * return their number
+	 */
+	private int gather(int cell, List<? extends Movable> items, Filter filter) {
+		int n = 0;
+		for (int i=head[cell]; i>=0; i=next[i]) {
+			if (!filter.accept(i)) continue;
+			if (n == cellItems.length) {
+				cellItems = Arrays.copyOf(cellItems, 2 * n);
+				cellX = Arrays.copyOf(cellX, 2 * n);
+				cellY = Arrays.copyOf(cellY, 2 * n);
+				cellDist = new double[2 * n];
+			}
+			Movable m = items.get(i);
+			cellItems[n] = i;
+			cellX[n] = m.getX();
+			cellY[n] = m.getY();
+			n += 1;
+		}
+		return n;
+	}
+
+	/**
+	 * Return the column, or equivalently row, of the cell containing coordinate v
+	 */
+	private int column(double v) {
+		int c = (int) ((v + halfWidth) / cellSize);
+		if (c < 0) return 0;
+		if (c >= cells) return cells - 1;
+		return c;
+	}
+
+	private int cellIndex(int column, int row) {return row * cells + column;}
+
+	/**
+	 * Decides which objects nearest() may return
+	 */
+	public interface Filter {
+
+		/**
+		 * Return True if the object with index i may be returned
+		 */
+		boolean accept(int i);
+	}
+
+}
@@ -0,0 +1,473 @@
+package learn;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import game.Action;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.IteratedSingleClassifierEnhancer;
+import weka.classifiers.meta.Bagging;
+import weka.classifiers.trees.RandomForest;
+import weka.classifiers.trees.RandomTree;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ *A trained Weka RandomForest compiled into flat primitive arrays. Every node of every tree is an index
+ *into the arrays, which hold the attribute and split point of the node, its two children and the weight
+ *of each child when the attribute is missing, and an offset into one array of class distributions.
+ *Features are read directly from the double[] produced by a FeatureGenerator, and the arithmetic of
+ *Weka's RandomForest, RandomTree and Bagging is reproduced in the same order, so predictions match
+ *those of the RandomForest exactly. Classification reuses buffers held by the forest, so a CompiledForest
+ *must only classify on one thread at a time.
+ *
+ *The forest is read from fields of Weka 3.6 classes which are not public API. compile() throws
+ *IllegalArgumentException if a forest does not have the expected structure.
+ *
+ *A CompiledForest is written to and read from a ModelSnapshot by write() and read(), which hold the class
+ *labels and the arrays of the nodes. Leaves are written without the fields only internal nodes use, and
+ *reading fills the arrays directly, so a forest of thousands of nodes loads in milliseconds without Weka
+ *or Java serialization.
+ */
+class CompiledForest implements Model {
+
+	/**
+	 * Attribute tested by each node, or -1 if the node is a leaf
+	 */
+	private final int[] attribute;
+
+	private final double[] split;
+
+	/**
+	 * Index of the first child of each node. The second child follows the first.
+	 */
+	private final int[] child;
+
+	/**
+	 * Weight of the distribution of each child when the attribute of the node is missing
+	 */
+	private final double[] propFirst, propSecond;
+
+	/**
+	 * Offset in dists of the normalized class distribution of each node, or -1 if it has none
+	 */
+	private final int[] dist;
+	private final double[] dists;
+
+	/**
+	 * Root node of each tree
+	 */
+	private final int[] roots;
+
+	private final int numClasses;
+
+	/**
+	 * Length of the longest path from a root to a leaf
+	 */
+	private final int depth;
+
+	/**
+	 * If True, a node without a distribution produces a distribution of zeros rather than none
+	 */
+	private final boolean allowUnclassified;
+
+	/**
+	 * Label of each class and its Action code
+	 */
+	private final String[] labels;
+	private final int[] actions;
+
+	/**
+	 * Buffers of predict(), reused by every call to classify()
+	 */
+	private final double[][] scratch;
+	private final double[] sums;
+
+	CompiledForest(int[] attribute, double[] split, int[] child, double[] propFirst, double[] propSecond,
+			int[] dist, double[] dists, int[] roots, int numClasses, boolean allowUnclassified, String[] labels) {
+		this.attribute = attribute;
+		this.split = split;
+		this.child = child;
+		this.propFirst = propFirst;
+		this.propSecond = propSecond;
+		this.dist = dist;
+		this.dists = dists;
+		this.roots = roots;
+		this.numClasses = numClasses;
+		this.allowUnclassified = allowUnclassified;
+		this.labels = labels;
+		actions = new int[labels.length];
+		for (int k=0; k<labels.length; ++k) actions[k] = Action.parse(labels[k]);
+		int d = 0;
+		for (int r: roots) d = Math.max(d, depth(r));
+		this.depth = d;
+		scratch = new double[d + 2][numClasses];
+		sums = new double[numClasses];
+	}
+
+	@Override
+	public int classify(double[] features) {
+		return actions[predict(features, scratch, sums)];
+	}
+
+	@Override
+	public void classify(double[][] features, int n, int[] actions) {
+		for (int k=0; k<n; ++k) actions[k] = this.actions[predict(features[k], scratch, sums)];
+	}
+
+	/**
+	 * Return the index of the class predicted for features, as RandomForest.classifyInstance would.
+	 * scratch must hold depth + 2 arrays of numClasses doubles and sums numClasses doubles.
+	 */
+	int predict(double[] features, double[][] scratch, double[] sums) {
+
+		distribution(features, scratch, sums);
+
+		//Pick the first class with the largest probability, or the first class if none is positive
+		double max = 0;
+		int maxIndex = 0;
+		for (int k=0; k<numClasses; ++k) {
+			if (sums[k] > max) {
+				maxIndex = k;
+				max = sums[k];
+			}
+		}
+		return maxIndex;
+	}
+
+	/**
+	 * Return the class distribution for features, as RandomForest.distributionForInstance would
+	 */
+	double[] distribution(double[] features) {
+		double[] d = new double[numClasses];
+		distribution(features, new double[depth + 2][numClasses], d);
+		return d;
+	}
+
+	/**
+	 * Write to sums the class distribution for features, as RandomForest.distributionForInstance would
+	 */
+	void distribution(double[] features, double[][] scratch, double[] sums) {
+
+		//Sum the distributions of the trees
+		Arrays.fill(sums, 0);
+		for (int r: roots) {
+			if (!evaluate(r, features, scratch, 0)) continue;
+			double[] d = scratch[0];
+			for (int k=0; k<numClasses; ++k) sums[k] += d[k];
+		}
+
+		//Normalize unless the sum is zero, as Bagging does
+		double sum = 0;
+		for (int k=0; k<numClasses; ++k) sum += sums[k];
+		if (Utils.eq(sum, 0)) return;
+		for (int k=0; k<numClasses; ++k) sums[k] /= sum;
+	}
+
+	/**
+	 * Write to scratch[level] the distribution of the subtree at node for features. Return False if
+	 * the subtree produces no distribution. Nodes are descended iteratively until a leaf or a missing
+	 * attribute is reached.
+	 */
+	private boolean evaluate(int node, double[] features, double[][] scratch, int level) {
+
+		//Distribution of the deepest node on the path which has one, used if a leaf has none
+		int fallback = -1;
+
+		while (true) {
+			int a = attribute[node];
+			int d = dist[node];
+
+			if (a < 0) {
+				if (d < 0 && allowUnclassified) {
+					Arrays.fill(scratch[level], 0);
+					return true;
+				}
+				if (d < 0) d = fallback;
+				if (d < 0) return false;
+				System.arraycopy(dists, d, scratch[level], 0, numClasses);
+				return true;
+			}
+			if (d >= 0) fallback = d;
+
+			double v = features[a];
+			if (Double.isNaN(v)) {
+
+				//Attribute is missing, so combine the distributions of both children by their weights
+				double[] out = scratch[level];
+				Arrays.fill(out, 0);
+				double[] help = scratch[level + 1];
+				if (evaluate(child[node], features, scratch, level + 1)) {
+					for (int k=0; k<numClasses; ++k) out[k] += propFirst[node] * help[k];
+				}
+				if (evaluate(child[node] + 1, features, scratch, level + 1)) {
+					for (int k=0; k<numClasses; ++k) out[k] += propSecond[node] * help[k];
+				}
+				return true;
+			}
+
+			node = v < split[node] ? child[node] : child[node] + 1;
+		}
+	}
+
+	private int depth(int node) {
+		if (attribute[node] < 0) return 0;
+		return 1 + Math.max(depth(child[node]), depth(child[node] + 1));
+	}
+
+	/**
+	 * Write the labels and nodes of the forest to out
+	 */
+	void write(DataOutputStream out) throws IOException {
+
+		out.writeInt(numClasses);
+		for (String l: labels) out.writeUTF(l);
+		out.writeBoolean(allowUnclassified);
+
+		out.writeInt(roots.length);
+		for (int r: roots) out.writeInt(r);
+
+		out.writeInt(attribute.length);
+		for (int i=0; i<attribute.length; ++i) {
+			out.writeInt(attribute[i]);
+			out.writeInt(dist[i]);
+			if (attribute[i] < 0) continue;
+			out.writeDouble(split[i]);
+			out.writeInt(child[i]);
+			out.writeDouble(propFirst[i]);
+			out.writeDouble(propSecond[i]);
+		}
+
+		out.writeInt(dists.length);
+		for (double d: dists) out.writeDouble(d);
+	}
+
+	/**
+	 * Read a forest written by write() from in. Throws IOException if in does not hold a valid forest
+	 * which tests at most numFeatures features.
+	 */
+	static CompiledForest read(DataInputStream in, int numFeatures) throws IOException {
+
+		int numClasses = count(in);
+		if (numClasses == 0) throw new IOException("Model snapshot has no classes.");
+		String[] labels = new String[numClasses];
+		for (int k=0; k<numClasses; ++k) {
+			labels[k] = in.readUTF();
+			try {
+				Action.parse(labels[k]);
+			}
+			catch (NumberFormatException e) {
+				throw new IOException("Model snapshot has invalid label " + labels[k] + ".");
+			}
+		}
+		boolean allowUnclassified = in.readBoolean();
+
+		int[] roots = new int[count(in)];
+		for (int t=0; t<roots.length; ++t) roots[t] = in.readInt();
+
+		int n = count(in);
+		int[] attribute = new int[n];
+		double[] split = new double[n];
+		int[] child = new int[n];
+		double[] propFirst = new double[n];
+		double[] propSecond = new double[n];
+		int[] dist = new int[n];
+		for (int i=0; i<n; ++i) {
+			attribute[i] = in.readInt();
+			dist[i] = in.readInt();
+			if (attribute[i] < 0) continue;
+			split[i] = in.readDouble();
+			child[i] = in.readInt();
+			propFirst[i] = in.readDouble();
+			propSecond[i] = in.readDouble();
+		}
+
+		double[] dists = new double[count(in)];
+		for (int k=0; k<dists.length; ++k) dists[k] = in.readDouble();
+
+		//Check every index so that a damaged snapshot cannot make evaluation fail later
+		for (int r: roots) {
+			if (r < 0 || r >= n) throw new IOException("Model snapshot has an invalid root.");
+		}
+		for (int i=0; i<n; ++i) {
+			if (attribute[i] >= numFeatures) throw new IOException("Model snapshot tests an unknown feature.");
+			if (attribute[i] >= 0 && (child[i] <= i || child[i] + 1 >= n)) throw new IOException("Model snapshot has an invalid node.");
+			if (dist[i] < -1 || dist[i] + numClasses > dists.length) throw new IOException("Model snapshot has an invalid distribution.");
+		}
+
+		return new CompiledForest(attribute, split, child, propFirst, propSecond, dist, dists, roots, numClasses,
+				allowUnclassified, labels);
+	}
+
+	/**
+	 * Read a count, which must not be negative
+	 */
+	private static int count(DataInputStream in) throws IOException {
+		int c = in.readInt();
+		if (c < 0) throw new IOException("Model snapshot has a negative count.");
+		return c;
+	}
+
+	int numTrees() {return roots.length;}
+	int numNodes() {return attribute.length;}
+	int numClasses() {return numClasses;}
+
+	/**
+	 * Compile a RandomForest which has been trained on Instances with the attributes of header
+	 */
+	static CompiledForest compile(RandomForest forest, Instances header) {
+		try {
+			Bagging bagger = (Bagging) field(RandomForest.class, "m_bagger").get(forest);
+			Classifier[] trees = (Classifier[]) field(IteratedSingleClassifierEnhancer.class, "m_Classifiers").get(bagger);
+			if (trees == null) throw new IllegalArgumentException("RandomForest has not been trained.");
+
+			Builder b = new Builder(header.numClasses());
+			int[] roots = new int[trees.length];
+			boolean allowUnclassified = false;
+			for (int t=0; t<trees.length; ++t) {
+				if (!(trees[t] instanceof RandomTree)) throw new IllegalArgumentException("RandomForest must consist of RandomTrees.");
+				RandomTree tree = (RandomTree) trees[t];
+				allowUnclassified = tree.getAllowUnclassifiedInstances();
+				roots[t] = b.addTree(tree, header);
+			}
+
+			String[] labels = new String[header.numClasses()];
+			for (int k=0; k<labels.length; ++k) labels[k] = header.classAttribute().value(k);
+
+			return b.build(roots, allowUnclassified, labels);
+		}
+
+		catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("RandomForest does not have the structure of a Weka 3.6 RandomForest.", e);
+		}
+	}
+
+	private static Field field(Class<?> c, String name) throws NoSuchFieldException {
+		Field f = c.getDeclaredField(name);
+		f.setAccessible(true);
+		return f;
+	}
+
+	/**
+	 * Accumulates the nodes of RandomTrees into growable arrays
+	 */
+	private static class Builder {
+
+		private final int numClasses;
+		private int size = 0;
+		private int[] attribute = new int[256];
+		private double[] split = new double[256];
+		private int[] child = new int[256];
+		private double[] propFirst = new double[256];
+		private double[] propSecond = new double[256];
+		private int[] dist = new int[256];
+		private List<double[]> dists = new ArrayList<double[]>();
+
+		private Field tree, zeroR, successors, attributeField, splitPoint, prop, classDistribution;
+
+		Builder(int numClasses) throws ReflectiveOperationException {
+			this.numClasses = numClasses;
+			tree = field(RandomTree.class, "m_Tree");
+			zeroR = field(RandomTree.class, "m_zeroR");
+			Class<?> treeClass = tree.getType();
+			successors = field(treeClass, "m_Successors");
+			attributeField = field(treeClass, "m_Attribute");
+			splitPoint = field(treeClass, "m_SplitPoint");
+			prop = field(treeClass, "m_Prop");
+			classDistribution = field(treeClass, "m_ClassDistribution");
+		}
+
+		/**
+		 * Add the nodes of a RandomTree and return the index of its root
+		 */
+		int addTree(RandomTree t, Instances header) throws ReflectiveOperationException {
+
+			//A RandomTree with no usable attributes predicts with ZeroR, whose distribution is constant
+			Classifier z = (Classifier) zeroR.get(t);
+			if (z != null) {
+				int root = allocate(1);
+				try {
+					setLeaf(root, z.distributionForInstance(new FeatureInstance(header)), false);
+				}
+				catch (Exception e) {
+					throw new IllegalArgumentException("ZeroR of RandomTree could not be evaluated.", e);
+				}
+				return root;
+			}
+
+			int root = allocate(1);
+			addNode(root, tree.get(t));
+			return root;
+		}
+
+		private void addNode(int index, Object node) throws ReflectiveOperationException {
+
+			int a = attributeField.getInt(node);
+			double[] d = (double[]) classDistribution.get(node);
+			setLeaf(index, d, true);
+			if (a < 0) return;
+
+			Object[] children = (Object[]) successors.get(node);
+			if (children.length != 2) throw new IllegalArgumentException("Only numeric attributes are supported.");
+			double[] p = (double[]) prop.get(node);
+
+			int first = allocate(2);
+			attribute[index] = a;
+			split[index] = splitPoint.getDouble(node);
+			child[index] = first;
+			propFirst[index] = p[0];
+			propSecond[index] = p[1];
+			addNode(first, children[0]);
+			addNode(first + 1, children[1]);
+		}
+
+		/**
+		 * Make node a leaf with distribution d, normalizing a copy of d first if normalize is True
+		 */
+		private void setLeaf(int node, double[] d, boolean normalize) {
+			attribute[node] = -1;
+			if (d == null) {
+				dist[node] = -1;
+				return;
+			}
+			if (d.length != numClasses) throw new IllegalArgumentException("Distribution must have one value per class.");
+			d = d.clone();
+			if (normalize) Utils.normalize(d);
+			dist[node] = dists.size() * numClasses;
+			dists.add(d);
+		}
+
+		/**
+		 * Reserve n consecutive nodes and return the index of the first
+		 */
+		private int allocate(int n) {
+			if (size + n > attribute.length) {
+				int c = 2 * (size + n);
+				attribute = Arrays.copyOf(attribute, c);
+				split = Arrays.copyOf(split, c);
+				child = Arrays.copyOf(child, c);
+				propFirst = Arrays.copyOf(propFirst, c);
+				propSecond = Arrays.copyOf(propSecond, c);
+				dist = Arrays.copyOf(dist, c);
+			}
+			int first = size;
+			size += n;
+			return first;
+		}
+
+		CompiledForest build(int[] roots, boolean allowUnclassified, String[] labels) {
+			double[] flat = new double[dists.size() * numClasses];
+			for (int k=0; k<dists.size(); ++k) System.arraycopy(dists.get(k), 0, flat, k * numClasses, numClasses);
+			return new CompiledForest(Arrays.copyOf(attribute, size), Arrays.copyOf(split, size), Arrays.copyOf(child, size),
+					Arrays.copyOf(propFirst, size), Arrays.copyOf(propSecond, size), Arrays.copyOf(dist, size), flat,
+					roots, numClasses, allowUnclassified, labels);
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+package learn;
+
+/**
+ *Concatenates the features of several FeatureGenerators, in the order they were given, into one array.
+ *Every part reads the same WorldSnapshot and writes directly into its own range of the array, so
+ *combining generators adds only the work of each generator and no copying.
+ */
+public class CompositeFeatureGenerator implements FeatureGenerator {
+
+	private final FeatureGenerator[] parts;
+	private final int numFeatures;
+
+	/**
+	 * Construct CompositeFeatureGenerator which writes the features of each of parts in turn
+	 */
+	public CompositeFeatureGenerator(FeatureGenerator... parts) {
+		if (parts.length == 0) throw new IllegalArgumentException("At least one FeatureGenerator is required.");
+		this.parts = parts.clone();
+		int n = 0;
+		for (FeatureGenerator p: this.parts) n += p.getNumFeatures();
+		numFeatures = n;
+	}
+
+	@Override
+	public int getNumFeatures() {return numFeatures;}
+
+	@Override
+	public void generate(WorldSnapshot world, int index, double[] features, int offset) {
+		for (FeatureGenerator p: parts) {
+			p.generate(world, index, features, offset);
+			offset += p.getNumFeatures();
+		}
+	}
+
+	/**
+	 * Return the number of FeatureGenerators combined
+	 */
+	public int size() {return parts.length;}
+
+}
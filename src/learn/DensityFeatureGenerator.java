@@ -0,0 +1,69 @@
+package learn;
+
+import jet.SpatialGrid;
+
+/**
+ *Generates the number of enemy Projectiles within a radius of a Jet, which tells a classifier how
+ *crowded the Jet's surroundings are beyond the few closest Projectiles. When the radius fits within
+ *the cells of the WorldSnapshot's Projectile grid, only the Projectiles in neighboring cells are
+ *tested; otherwise all enemy Projectiles are. A DensityFeatureGenerator must not be shared between
+ *threads.
+ */
+public class DensityFeatureGenerator implements FeatureGenerator {
+
+	private final double radius;
+
+	/**
+	 * Indices of Projectiles near the Jet, reused between calls
+	 */
+	private int[] near = new int[64];
+
+	/**
+	 * Construct DensityFeatureGenerator which counts enemy Projectiles closer than radius
+	 */
+	public DensityFeatureGenerator(double radius) {
+		if (!(radius > 0)) throw new IllegalArgumentException("'radius' must be greater than zero.");
+		this.radius = radius;
+	}
+
+	@Override
+	public int getNumFeatures() {return 1;}
+
+	@Override
+	public void generate(WorldSnapshot world, int index, double[] features, int offset) {
+
+		if (index >= world.getNumJets()) throw new IndexOutOfBoundsException("'index' must specifiy index of Jet in 'world'.");
+		double x = world.getJetX(index);
+		double y = world.getJetY(index);
+		int team = world.getJetTeam(index);
+		double r2 = radius * radius;
+		int count = 0;
+
+		if (radius <= world.getCellSize()) {
+			if (near.length < world.getNumProjectiles()) near = new int[Math.max(world.getNumProjectiles(), 2 * near.length)];
+			SpatialGrid grid = world.getProjectileGrid();
+			double[] px = world.getProjectileX(), py = world.getProjectileY();
+			int[] pTeam = world.getProjectileTeam();
+			int n = grid.near(x, y, near);
+			for (int m=0; m<n; ++m) {
+				int i = near[m];
+				if (pTeam[i] == team) continue;
+				double xDiff = px[i] - x;
+				double yDiff = py[i] - y;
+				if (xDiff * xDiff + yDiff * yDiff < r2) count += 1;
+			}
+		}
+		else {
+			double[] ex = world.getEnemyX(team), ey = world.getEnemyY(team);
+			for (int i=0; i<world.getNumEnemies(team); ++i) {
+				double xDiff = ex[i] - x;
+				double yDiff = ey[i] - y;
+				if (xDiff * xDiff + yDiff * yDiff < r2) count += 1;
+			}
+		}
+		features[offset] = count;
+	}
+
+	public double getRadius() {return radius;}
+
+}
@@ -0,0 +1,224 @@
+package learn;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import game.Action;
+
+import weka.core.Attribute;
+
+/**
+ *A Model made up of classifiers which were each trained on the Samples of a single round. Each member
+ *remembers the range of sequence numbers of the Samples it was trained on, and is retired once no stored
+ *Sample has a sequence number in its range. Stored Samples are counted for every member, so members are
+ *retired correctly whichever RetentionPolicy decides which Samples are discarded. Predictions are made
+ *by summing the class distributions of the members, each weighted by the number of Samples it was
+ *trained on.
+ */
+class EnsembleModel implements Model {
+
+	/**
+	 * A classifier trained on one round of Samples
+	 */
+	static class Member {
+
+		private final WekaModel model;
+
+		/**
+		 * Sequence numbers in the stored Samples of the first of this member's Samples and of the first
+		 * Sample added after them
+		 */
+		private final long start, end;
+
+		private final int numSamples;
+
+		/**
+		 * Index in the ensemble's labels of every class value of the member's header
+		 */
+		private final int[] toLabel;
+
+		private Member(WekaModel model, long start, long end, int numSamples, int[] toLabel) {
+			this.model = model;
+			this.start = start;
+			this.end = end;
+			this.numSamples = numSamples;
+			this.toLabel = toLabel;
+		}
+	}
+
+	private final List<Member> members;
+
+	/**
+	 * Every label known to any member, in the order they were first seen, and its Action code
+	 */
+	private final List<String> labels;
+	private final int[] actions;
+
+	/**
+	 * Construct an empty EnsembleModel
+	 */
+	EnsembleModel() {
+		this(new ArrayList<Member>(), new ArrayList<String>());
+	}
+
+	private EnsembleModel(List<Member> members, List<String> labels) {
+		this.members = Collections.unmodifiableList(members);
+		this.labels = Collections.unmodifiableList(labels);
+		actions = new int[labels.size()];
+		for (int k=0; k<actions.length; ++k) actions[k] = Action.parse(labels.get(k));
+	}
+
+	/**
+	 * Return a new EnsembleModel with the members of this EnsembleModel of which some Samples are still
+	 * stored in stored, plus a member which was trained on numSamples Samples added to stored with
+	 * sequence numbers from first onwards. The member may be null if no member should be added.
+	 */
+	EnsembleModel update(WekaModel model, int numSamples, long first, Samples stored) {
+
+		//Count the stored Samples of each member, which occupy the slots below size(). Ranges of members
+		//are in ascending order.
+		int[] live = new int[members.size()];
+		for (int slot=0; slot<stored.size(); ++slot) {
+			int m = find(stored.getSequenceAt(slot));
+			if (m >= 0) live[m] += 1;
+		}
+
+		List<Member> kept = new ArrayList<Member>();
+		for (int m=0; m<live.length; ++m) {
+			if (live[m] > 0) kept.add(members.get(m));
+		}
+
+		List<String> newLabels = new ArrayList<String>(labels);
+		if (model != null) {
+			Attribute classes = model.getHeader().classAttribute();
+			int[] toLabel = new int[classes.numValues()];
+			for (int k=0; k<toLabel.length; ++k) {
+				String v = classes.value(k);
+				int l = newLabels.indexOf(v);
+				if (l < 0) {
+					l = newLabels.size();
+					newLabels.add(v);
+				}
+				toLabel[k] = l;
+			}
+			kept.add(new Member(model, first, stored.getAdded(), numSamples, toLabel));
+		}
+
+		return new EnsembleModel(kept, newLabels);
+	}
+
+	/**
+	 * Return the index of the member whose range holds sequence, or -1 if no member's range holds it
+	 */
+	private int find(long sequence) {
+		int low = 0, high = members.size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			Member m = members.get(mid);
+			if (sequence < m.start) high = mid - 1;
+			else if (sequence >= m.end) low = mid + 1;
+			else return mid;
+		}
+		return -1;
+	}
+
+	@Override
+	public int classify(double[] features) throws Exception {
+		int[] actions = new int[1];
+		classify(new double[][] {features}, 1, actions);
+		return actions[0];
+	}
+
+	@Override
+	public void classify(double[][] features, int n, int[] actions) throws Exception {
+
+		if (members.isEmpty()) throw new IllegalStateException("EnsembleModel has no members.");
+
+		//Every member has the same attributes other than the class, so one Instance serves all members
+		FeatureInstance i = new FeatureInstance(members.get(0).model.getHeader());
+		double[] sums = new double[this.labels.size()];
+
+		for (int r=0; r<n; ++r) {
+			i.setFeatures(features[r]);
+			Arrays.fill(sums, 0);
+			for (Member m: members) {
+				i.setDataset(m.model.getHeader());
+				double[] dist = m.model.distribution(i);
+				for (int k=0; k<dist.length; ++k) sums[m.toLabel[k]] += m.numSamples * dist[k];
+			}
+
+			int best = 0;
+			for (int k=1; k<sums.length; ++k) {
+				if (sums[k] > sums[best]) best = k;
+			}
+			actions[r] = this.actions[best];
+		}
+	}
+
+	/**
+	 * Write the labels and members of the ensemble to out
+	 */
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(labels.size());
+		for (String l: labels) out.writeUTF(l);
+		out.writeInt(members.size());
+		for (Member m: members) {
+			out.writeLong(m.start);
+			out.writeLong(m.end);
+			out.writeInt(m.numSamples);
+			out.writeInt(m.toLabel.length);
+			for (int l: m.toLabel) out.writeInt(l);
+			m.model.write(out);
+		}
+	}
+
+	/**
+	 * Read an ensemble written by write() from in. Throws IOException if in does not hold a valid ensemble
+	 * of members which classify numFeatures features. Ranges of sequence numbers are kept as written, but
+	 * refer to the Samples of the JetTrainer which wrote the ensemble.
+	 */
+	static EnsembleModel read(DataInputStream in, int numFeatures) throws IOException {
+
+		int numLabels = in.readInt();
+		if (numLabels < 0) throw new IOException("Model snapshot has a negative count.");
+		List<String> labels = new ArrayList<String>();
+		for (int k=0; k<numLabels; ++k) {
+			String l = in.readUTF();
+			try {
+				Action.parse(l);
+			}
+			catch (NumberFormatException e) {
+				throw new IOException("Model snapshot has invalid label " + l + ".");
+			}
+			labels.add(l);
+		}
+
+		int numMembers = in.readInt();
+		if (numMembers <= 0) throw new IOException("Model snapshot has an ensemble without members.");
+		List<Member> members = new ArrayList<Member>();
+		for (int i=0; i<numMembers; ++i) {
+			long start = in.readLong();
+			long end = in.readLong();
+			int numSamples = in.readInt();
+			int[] toLabel = new int[in.readInt()];
+			for (int k=0; k<toLabel.length; ++k) {
+				toLabel[k] = in.readInt();
+				if (toLabel[k] < 0 || toLabel[k] >= numLabels) throw new IOException("Model snapshot has an invalid label index.");
+			}
+			WekaModel model = WekaModel.read(in, numFeatures);
+			if (model.getHeader().numClasses() != toLabel.length) throw new IOException("Model snapshot has an invalid member.");
+			members.add(new Member(model, start, end, numSamples, toLabel));
+		}
+		return new EnsembleModel(members, labels);
+	}
+
+	boolean isEmpty() {return members.isEmpty();}
+
+	int size() {return members.size();}
+
+}
@@ -1,19 +1,23 @@
 package learn;
 
-
-import java.util.List;
-
-import jet.Jet;
-
-import weka.core.Instance;
-
 /**
- *A FeatureGenerator must implement only one public function which returns an array of features
- *for a given game state in the form of a List of Jets jets and the index of the Jet in jets 
- *from whose perspective the features must be generated. 
+ *A FeatureGenerator writes an array of features for a game state, in the form of a WorldSnapshot,
+ *from the perspective of one of the snapshot's Jets. The snapshot is built once per game state and
+ *shared by every FeatureGenerator and every Jet, so a FeatureGenerator reads it rather than scanning
+ *the game state itself. Features are written at an offset so that several FeatureGenerators can fill
+ *one array together, as a CompositeFeatureGenerator does.
  */
 public interface FeatureGenerator {
 
-	public double[] generate(List<Jet> jets, int index);
+	/**
+	 * Return the number of features written for each Jet
+	 */
+	public int getNumFeatures();
+	
+	/**
+	 * Write to features, starting at offset, the getNumFeatures() features of the Jet at index among the
+	 * Jets of world.
+	 */
+	public void generate(WorldSnapshot world, int index, double[] features, int offset);
 	
 }
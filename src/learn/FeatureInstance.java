@@ -0,0 +1,31 @@
+package learn;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ *A Weka Instance whose feature values can be overwritten in place with an array of features, so that
+ *one Instance can be reused to classify many arrays of features. The class value is always missing.
+ *Instance.setValue copies all values on every call, which this avoids.
+ */
+class FeatureInstance extends Instance {
+
+	private final int numFeatures;
+
+	FeatureInstance(Instances header) {
+		super(1, new double[header.numAttributes()]);
+		numFeatures = header.numAttributes() - 1;
+		m_AttValues[numFeatures] = Instance.missingValue();
+		setDataset(header);
+	}
+
+	/**
+	 * Overwrite the feature values of this Instance
+	 */
+	void setFeatures(double[] features) {
+		if (features.length != numFeatures)
+			throw new IllegalArgumentException("Number of features must match the number of attributes.");
+		System.arraycopy(features, 0, m_AttValues, 0, numFeatures);
+	}
+
+}
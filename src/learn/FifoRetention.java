@@ -0,0 +1,22 @@
+package learn;
+
+/**
+ *Keeps the newest Samples. When Samples is full, a new Sample replaces the oldest stored Sample.
+ */
+public class FifoRetention implements RetentionPolicy {
+
+	@Override
+	public int place(Samples samples, double[] features, int label) {
+		return samples.isFull() ? samples.getOldestSlot() : APPEND;
+	}
+
+	@Override
+	public void stored(Samples samples, int slot) {}
+
+	@Override
+	public void removed(Samples samples, int slot) {}
+
+	@Override
+	public void clear() {}
+
+}
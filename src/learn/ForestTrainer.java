@@ -0,0 +1,528 @@
+package learn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+import weka.core.Utils;
+
+/**
+ *Trains random forests on the columns of a Samples object in parallel and produces CompiledForests.
+ *Every tree is grown on a bootstrap sample of the stored Samples, choosing each split by information
+ *gain among a random subset of features, as Weka's RandomForest does. Trees are grown as tasks of a
+ *ForkJoinPool, and large nodes fork their subtrees as further tasks, so all threads of the pool are
+ *busy even when there are fewer trees than threads.
+ *
+ *Samples with a missing feature are passed down both sides of a split on that feature, weighted by
+ *the fraction of Samples which go to each side, and CompiledForest evaluates missing features the
+ *same way. A forest is grown from the same seed for every training, so equal Samples produce equal
+ *forests whatever the parallelism. The threads of the pool are daemon threads, so a ForestTrainer which
+ *is no longer used never keeps the JVM from exiting, and idle threads are retired by the pool.
+ */
+public class ForestTrainer {
+
+	/**
+	 * Nodes with at least this many Samples grow their subtrees as separate tasks
+	 */
+	private static final int FORK_THRESHOLD = 256;
+
+	/**
+	 * Creates the daemon threads of the pool
+	 */
+	private static final ForkJoinPool.ForkJoinWorkerThreadFactory THREADS = new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+		@Override
+		public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+			ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			t.setDaemon(true);
+			t.setName("ForestTrainer-" + t.getPoolIndex());
+			return t;
+		}
+	};
+
+	private final ForkJoinPool pool;
+
+	private int numTrees;
+
+	/**
+	 * Number of randomly chosen features considered for each split, or 0 for log2(features) + 1
+	 */
+	private int numFeatures = 0;
+
+	/**
+	 * Maximum depth of a tree, or 0 for unlimited
+	 */
+	private int maxDepth = 0;
+
+	/**
+	 * Minimum weight of Samples on each side of a split
+	 */
+	private double minLeaf = 1;
+
+	private long seed = 1;
+
+	/**
+	 * Construct ForestTrainer which grows numTrees trees using all available processors
+	 */
+	public ForestTrainer(int numTrees) {
+		this(numTrees, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Construct ForestTrainer which grows numTrees trees on parallelism threads
+	 */
+	public ForestTrainer(int numTrees, int parallelism) {
+		if (numTrees <= 0) throw new IllegalArgumentException("Number of trees must be greater than zero.");
+		if (parallelism <= 0) throw new IllegalArgumentException("Parallelism must be greater than zero.");
+		this.numTrees = numTrees;
+		pool = new ForkJoinPool(parallelism, THREADS, null, false);
+	}
+
+	/**
+	 * Grow a forest on the stored Samples of samples. The columns of samples are read directly, so
+	 * samples must not be modified until training is complete.
+	 */
+	CompiledForest train(Samples samples) {
+		return train(samples, seed);
+	}
+
+	/**
+	 * Grow a forest on the stored Samples of samples from seed instead of the seed of the ForestTrainer
+	 */
+	CompiledForest train(Samples samples, long seed) {
+
+		if (samples.isEmpty()) throw new IllegalStateException("This Samples object contains 0 Samples.");
+
+		//Number classes in the order their labels first appear among stored Samples, as toInstances() does
+		int[] toClass = new int[samples.numLabelCodes()];
+		Arrays.fill(toClass, -1);
+		List<String> labels = new ArrayList<String>();
+		int n = samples.size();
+		int[] classes = new int[n];
+		for (int i=0; i<n; ++i) {
+			int p = samples.slot(i);
+			int c = samples.getLabelAt(p);
+			if (toClass[c] < 0) {
+				toClass[c] = labels.size();
+				labels.add(samples.getLabelName(c));
+			}
+			classes[p] = toClass[c];
+		}
+
+		int m = samples.getNumFeatures();
+		double[][] columns = new double[m][];
+		for (int k=0; k<m; ++k) columns[k] = samples.column(k);
+		int k = numFeatures > 0 ? Math.min(numFeatures, m) : (int) Utils.log2(m) + 1;
+		Data data = new Data(columns, classes, labels.size(), k);
+
+		//Every tree has its own seed so that the forest does not depend on the order trees are grown in
+		Random random = new Random(seed);
+		final Node[] roots = new Node[numTrees];
+		final Grow[] tasks = new Grow[numTrees];
+		for (int t=0; t<numTrees; ++t) {
+			Random r = new Random(random.nextLong());
+			roots[t] = new Node();
+			tasks[t] = new Grow(data, roots[t], bootstrap(n, r), 0, r.nextLong());
+		}
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+
+		return flatten(roots, labels.toArray(new String[labels.size()]));
+	}
+
+	/**
+	 * Return the slots drawn with replacement from n slots, n times, weighted by the number of draws
+	 */
+	private Subset bootstrap(int n, Random r) {
+		double[] counts = new double[n];
+		for (int i=0; i<n; ++i) counts[r.nextInt(n)] += 1;
+		int distinct = 0;
+		for (int i=0; i<n; ++i) {
+			if (counts[i] > 0) ++distinct;
+		}
+		Subset s = new Subset(distinct);
+		for (int i=0; i<n; ++i) {
+			if (counts[i] > 0) s.add(i, counts[i]);
+		}
+		return s;
+	}
+
+	/**
+	 * Sets the number of features considered for each split, or 0 for log2(features) + 1
+	 */
+	public void setNumFeatures(int numFeatures) {this.numFeatures = numFeatures;}
+	public int getNumFeatures() {return numFeatures;}
+
+	/**
+	 * Sets the maximum depth of a tree, or 0 for unlimited
+	 */
+	public void setMaxDepth(int maxDepth) {this.maxDepth = maxDepth;}
+	public int getMaxDepth() {return maxDepth;}
+
+	/**
+	 * Sets the minimum weight of Samples on each side of a split
+	 */
+	public void setMinLeaf(double minLeaf) {this.minLeaf = minLeaf;}
+	public double getMinLeaf() {return minLeaf;}
+
+	public void setNumTrees(int numTrees) {
+		if (numTrees <= 0) throw new IllegalArgumentException("Number of trees must be greater than zero.");
+		this.numTrees = numTrees;
+	}
+	public int getNumTrees() {return numTrees;}
+
+	public void setSeed(long seed) {this.seed = seed;}
+	public long getSeed() {return seed;}
+
+	public int getParallelism() {return pool.getParallelism();}
+
+	/**
+	 * Shared, read-only training data
+	 */
+	private static class Data {
+
+		/**
+		 * Feature k of the Sample in slot p is columns[k][p], and its class is classes[p]
+		 */
+		final double[][] columns;
+		final int[] classes;
+		final int numClasses;
+
+		/**
+		 * Number of features considered for each split
+		 */
+		final int k;
+
+		Data(double[][] columns, int[] classes, int numClasses, int k) {
+			this.columns = columns;
+			this.classes = classes;
+			this.numClasses = numClasses;
+			this.k = k;
+		}
+	}
+
+	/**
+	 * Slots of the Samples which reach a node, each with a weight
+	 */
+	private static class Subset {
+
+		int[] slots;
+		double[] weights;
+		int size = 0;
+
+		Subset(int capacity) {
+			slots = new int[capacity];
+			weights = new double[capacity];
+		}
+
+		void add(int slot, double weight) {
+			slots[size] = slot;
+			weights[size] = weight;
+			size += 1;
+		}
+	}
+
+	/**
+	 * A node of a tree while it is grown
+	 */
+	private static class Node {
+
+		/**
+		 * Feature tested by the node, or -1 if the node is a leaf
+		 */
+		int attribute = -1;
+		double split;
+		double propFirst, propSecond;
+
+		/**
+		 * Weight of Samples of each class which reach the node
+		 */
+		double[] dist;
+
+		Node first, second;
+	}
+
+	/**
+	 * Grows the subtree at a node
+	 */
+	private class Grow extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Data data;
+		private final Node node;
+		private final Subset subset;
+		private final int depth;
+		private final long seed;
+
+		Grow(Data data, Node node, Subset subset, int depth, long seed) {
+			this.data = data;
+			this.node = node;
+			this.subset = subset;
+			this.depth = depth;
+			this.seed = seed;
+		}
+
+		@Override
+		protected void compute() {
+
+			Random r = new Random(seed);
+			double[] dist = new double[data.numClasses];
+			double total = 0;
+			for (int i=0; i<subset.size; ++i) {
+				dist[data.classes[subset.slots[i]]] += subset.weights[i];
+				total += subset.weights[i];
+			}
+			node.dist = dist;
+
+			//Stop if too few Samples remain, all Samples have one class, or the tree is deep enough
+			if (total < 2 * minLeaf || dist[Utils.maxIndex(dist)] == total || (maxDepth > 0 && depth >= maxDepth)) return;
+
+			Split best = bestSplit(r);
+			if (best == null) return;
+
+			//Divide the Samples, passing Samples with a missing feature to both children
+			double[] column = data.columns[best.attribute];
+			Subset first = new Subset(subset.size);
+			Subset second = new Subset(subset.size);
+			for (int i=0; i<subset.size; ++i) {
+				int p = subset.slots[i];
+				double v = column[p];
+				double w = subset.weights[i];
+				if (Double.isNaN(v)) {
+					first.add(p, w * best.propFirst);
+					second.add(p, w * best.propSecond);
+				}
+				else if (v < best.split) first.add(p, w);
+				else second.add(p, w);
+			}
+
+			node.attribute = best.attribute;
+			node.split = best.split;
+			node.propFirst = best.propFirst;
+			node.propSecond = best.propSecond;
+			node.first = new Node();
+			node.second = new Node();
+			Grow a = new Grow(data, node.first, first, depth + 1, r.nextLong());
+			Grow b = new Grow(data, node.second, second, depth + 1, r.nextLong());
+			if (subset.size >= FORK_THRESHOLD) invokeAll(a, b);
+			else {
+				a.compute();
+				b.compute();
+			}
+		}
+
+		/**
+		 * Return the split with the largest information gain among randomly chosen features, or null if
+		 * no split has positive gain. As in Weka's RandomTree, features beyond the first k are considered
+		 * until a split with positive gain is found.
+		 */
+		private Split bestSplit(Random r) {
+
+			int m = data.columns.length;
+			int[] order = new int[m];
+			for (int k=0; k<m; ++k) order[k] = k;
+
+			Split best = null;
+			double[] values = new double[subset.size];
+			int[] items = new int[subset.size];
+			double[] left = new double[data.numClasses];
+			double[] right = new double[data.numClasses];
+
+			for (int j=0; j<m && (j < data.k || best == null); ++j) {
+
+				//Choose the next feature at random
+				int s = j + r.nextInt(m - j);
+				int a = order[s];
+				order[s] = order[j];
+				order[j] = a;
+
+				//Sort Samples for which the feature is known by its value
+				double[] column = data.columns[a];
+				int known = 0;
+				double missing = 0;
+				Arrays.fill(right, 0);
+				for (int i=0; i<subset.size; ++i) {
+					double v = column[subset.slots[i]];
+					if (Double.isNaN(v)) {
+						missing += subset.weights[i];
+						continue;
+					}
+					values[known] = v;
+					items[known] = i;
+					right[data.classes[subset.slots[i]]] += subset.weights[i];
+					++known;
+				}
+				if (known < 2) continue;
+				sort(values, items, 0, known - 1);
+
+				double knownWeight = 0;
+				for (double w: right) knownWeight += w;
+				double prior = entropy(right, knownWeight);
+
+				//Move Samples from right to left one at a time, scoring the split between distinct values
+				Arrays.fill(left, 0);
+				double leftWeight = 0;
+				for (int i=0; i<known - 1; ++i) {
+					int item = items[i];
+					double w = subset.weights[item];
+					int c = data.classes[subset.slots[item]];
+					left[c] += w;
+					right[c] -= w;
+					leftWeight += w;
+					if (values[i] == values[i + 1]) continue;
+
+					double rightWeight = knownWeight - leftWeight;
+					if (leftWeight < minLeaf || rightWeight < minLeaf) continue;
+
+					double gain = (prior - (leftWeight * entropy(left, leftWeight) + rightWeight * entropy(right, rightWeight)) / knownWeight)
+							* knownWeight / (knownWeight + missing);
+					if (gain > 1e-10 && (best == null || gain > best.gain)) {
+						if (best == null) best = new Split();
+						best.attribute = a;
+						best.split = (values[i] + values[i + 1]) / 2;
+						best.gain = gain;
+						best.propFirst = leftWeight / knownWeight;
+						best.propSecond = rightWeight / knownWeight;
+					}
+				}
+			}
+			return best;
+		}
+	}
+
+	private static class Split {
+		int attribute;
+		double split, gain, propFirst, propSecond;
+	}
+
+	/**
+	 * Return the entropy in bits of the class distribution dist, whose sum is total
+	 */
+	private static double entropy(double[] dist, double total) {
+		if (total <= 0) return 0;
+		double e = 0;
+		for (double d: dist) {
+			if (d > 0) e -= d * Math.log(d / total);
+		}
+		return e / (total * Math.log(2));
+	}
+
+	/**
+	 * Sort values between lo and hi inclusive in ascending order, moving items with them
+	 */
+	private static void sort(double[] values, int[] items, int lo, int hi) {
+		while (hi - lo > 16) {
+			double pivot = values[(lo + hi) >>> 1];
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (values[i] < pivot) ++i;
+				while (values[j] > pivot) --j;
+				if (i <= j) swap(values, items, i++, j--);
+			}
+
+			//Recurse into the smaller part so that the stack stays shallow
+			if (j - lo < hi - i) {
+				sort(values, items, lo, j);
+				lo = i;
+			}
+			else {
+				sort(values, items, i, hi);
+				hi = j;
+			}
+		}
+		for (int i=lo + 1; i<=hi; ++i) {
+			for (int j=i; j>lo && values[j - 1] > values[j]; --j) swap(values, items, j, j - 1);
+		}
+	}
+
+	private static void swap(double[] values, int[] items, int i, int j) {
+		double v = values[i];
+		values[i] = values[j];
+		values[j] = v;
+		int t = items[i];
+		items[i] = items[j];
+		items[j] = t;
+	}
+
+	/**
+	 * Lay out the nodes of the trees in the arrays of a CompiledForest
+	 */
+	private static CompiledForest flatten(Node[] trees, String[] labels) {
+
+		int count = 0;
+		for (Node t: trees) count += count(t);
+
+		int numClasses = labels.length;
+		int[] attribute = new int[count];
+		double[] split = new double[count];
+		int[] child = new int[count];
+		double[] propFirst = new double[count];
+		double[] propSecond = new double[count];
+		int[] dist = new int[count];
+		double[] dists = new double[count * numClasses];
+		int[] roots = new int[trees.length];
+
+		//Number nodes so that the children of a node are adjacent
+		Node[] nodes = new Node[count];
+		int size = 0;
+		for (int t=0; t<trees.length; ++t) {
+			roots[t] = size;
+			nodes[size++] = trees[t];
+			for (int i=roots[t]; i<size; ++i) {
+				Node n = nodes[i];
+				if (n.attribute < 0) continue;
+				child[i] = size;
+				nodes[size++] = n.first;
+				nodes[size++] = n.second;
+			}
+		}
+
+		int numDists = 0;
+		for (int i=0; i<count; ++i) {
+			Node n = nodes[i];
+			attribute[i] = n.attribute;
+			split[i] = n.split;
+			propFirst[i] = n.propFirst;
+			propSecond[i] = n.propSecond;
+
+			//A node which no Sample reached has no distribution, so its parent's is used
+			double total = 0;
+			for (double d: n.dist) total += d;
+			if (total <= 0) {
+				dist[i] = -1;
+				continue;
+			}
+			dist[i] = numDists * numClasses;
+			for (int k=0; k<numClasses; ++k) dists[dist[i] + k] = n.dist[k] / total;
+			++numDists;
+		}
+
+		return new CompiledForest(attribute, split, child, propFirst, propSecond, dist,
+				Arrays.copyOf(dists, numDists * numClasses), roots, numClasses, false, labels);
+	}
+
+	private static int count(Node n) {
+		int c = 0;
+		List<Node> stack = new ArrayList<Node>();
+		stack.add(n);
+		while (!stack.isEmpty()) {
+			Node m = stack.remove(stack.size() - 1);
+			++c;
+			if (m.attribute < 0) continue;
+			stack.add(m.first);
+			stack.add(m.second);
+		}
+		return c;
+	}
+
+}
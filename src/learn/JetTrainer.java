@@ -1,20 +1,39 @@
 package learn;
 
-import java.util.List;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 
-import jet.Jet;
-
-import game.Angle;
+import game.Action;
+import game.Metrics;
+import game.Policy;
+import game.SampleRecorder;
 import weka.classifiers.Classifier;
-import weka.core.Instance;
+import weka.classifiers.trees.RandomForest;
 import weka.core.Instances;
+import weka.core.Randomizable;
 
 /**
- *Collects samples of game states represented by a List of Jets and the index of the perceiving Jet and 
+ *Collects samples of game states represented by a WorldSnapshot and the index of the perceiving Jet and 
  *the corresponding action taken. Trains a machine learning classifier in order to produce an action for
- *new game states.
+ *new game states. Training runs on a background thread while the previously trained classifier
+ *continues to produce actions.
  */
-public class JetTrainer {
+public class JetTrainer implements Policy, SampleRecorder, SampleSink {
 	
 	/**
 	 * Responsible for generating a set of features from some game state
@@ -27,18 +46,125 @@ public class JetTrainer {
 	private Samples sampleBuffer;
 	
 	/**
-	 * Holds Samples that will be used for training
+	 * Holds Samples that will be used for training. Only accessed by the training thread.
 	 */
 	private Samples trainSamples;
 	
 	/**
-	 * The set of Samples is converted to an Instances for use with Weka
+	 * Untrained classifier which is copied for every training
 	 */
-	private Instances instances;
-	
 	private Classifier classifier;
 	
-	private boolean trained = false;
+	/**
+	 * Most recently published classifier and its Instances header, replaced as a whole when training completes
+	 */
+	private volatile Model model;
+	
+	/**
+	 * Number of Models trained, version of the published Model, which is the number of Models published,
+	 * and highest version which may be published, or -1 if every Model is published once trained
+	 */
+	private int modelsTrained = 0;
+	private int modelVersion = 0;
+	private int modelLimit = -1;
+	
+	/**
+	 * Models which have been trained but not published because of modelLimit, oldest first. Guarded by
+	 * the lock of the queue together with the counts of Models.
+	 */
+	private final ArrayDeque<Model> heldModels = new ArrayDeque<Model>();
+	
+	/**
+	 * If True, each training adds a classifier trained only on the newest Samples to an EnsembleModel
+	 * instead of training a classifier on all stored Samples
+	 */
+	private volatile boolean incremental = false;
+	
+	/**
+	 * If True, a trained RandomForest is compiled into a CompiledForest before it is published
+	 */
+	private volatile boolean compileForest = true;
+	
+	/**
+	 * Grows forests directly on the stored Samples in place of the classifier, or null
+	 */
+	private volatile ForestTrainer forestTrainer;
+	
+	/**
+	 * Members of the incremental Model. Only accessed by the training thread.
+	 */
+	private EnsembleModel ensemble = new EnsembleModel();
+
+	private final int numSamples;
+
+	/**
+	 * Journal which every round of stored Samples is written to, or null. Only accessed by the training thread.
+	 */
+	private SampleJournal journal;
+
+	/**
+	 * Features of the latest Sample, which Samples copies when it is added
+	 */
+	private double[] sampleFeatures = new double[0];
+	
+	/**
+	 * Buffers reused by getActions on every call
+	 */
+	private double[][] batchFeatures = new double[0][];
+	private double[][] missFeatures = new double[0][];
+	private int[] missActions = new int[0];
+	private int[] missIndices = new int[0];
+	
+	/**
+	 * Buffer reused by getAction on every call
+	 */
+	private double[] singleFeatures = new double[0];
+	
+	/**
+	 * Caches predictions of the published Model, or null if predictions are not cached
+	 */
+	private volatile PredictionCache cache;
+
+	/**
+	 * Decides which ticks added by addSample are recorded
+	 */
+	private volatile SamplingPolicy sampling = new SamplingPolicy();
+	
+	/**
+	 * Seed of future trainings, or null if the seeds of the ForestTrainer and the classifier are used
+	 */
+	private volatile Long seed;
+	
+	/**
+	 * Records the latencies of feature generation, inference and training, or null
+	 */
+	private volatile Metrics metrics;
+	
+	/**
+	 * Largest number of rounds added by addRound() which may wait to be stored, beyond which addRound()
+	 * blocks until the training thread catches up
+	 */
+	private static final int MAX_PENDING_ROUNDS = 64;
+	private final Semaphore roundSlots = new Semaphore(MAX_PENDING_ROUNDS);
+	
+	/**
+	 * Largest number of rounds added by addRound() which are written to the journal before a commit.
+	 * Rounds are also committed whenever no more rounds are waiting. Only accessed by the training thread.
+	 */
+	private static final int COMMIT_ROUNDS = 32;
+	private int uncommitted = 0;
+	
+	/**
+	 * Runs training tasks one at a time, in the order train() was called
+	 */
+	private final ExecutorService trainer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "JetTrainer");
+			t.setDaemon(true);
+			return t;
+		}
+	});
 	
 	/**
 	 * Construct JetTrainer from a FeatureGenerator, Weka Classifier, and a maximum
@@ -47,19 +173,28 @@ public class JetTrainer {
 	public JetTrainer(FeatureGenerator fg, Classifier classifier, int numSamples) {
 		this.fg = fg;
 		this.classifier = classifier;
+		this.numSamples = numSamples;
 		sampleBuffer = new Samples(numSamples);
 		trainSamples = new Samples(numSamples);
 	}
 
 	/**
-	 * Add to sampleBuffer a Sample of the game state, represented by a List of jets and the index in
-	 * that List of the perceiving Jet, and of the corresponding action, represented by
-	 * the angle between the path the Jet has taken and the Jet's path to the origin.
+	 * Add to sampleBuffer a Sample of the game state, represented by a WorldSnapshot and the index in
+	 * it of the perceiving Jet, and of the corresponding action, represented by the Action code
+	 * of the path the Jet has taken relative to the Jet's path to the origin. The SamplingPolicy
+	 * decides whether the tick is recorded, and features are only generated if it may be.
 	 */
-	public void addSample(List<Jet> jets, int index, Angle a) {
-		double[] features = fg.generate(jets, index);
-		Sample s = new Sample(features, a.toString());
-		sampleBuffer.addSample(s);
+	@Override
+	public void addSample(WorldSnapshot world, int index, int action) {
+		SamplingPolicy s = sampling;
+		if (!s.offer(action)) return;
+		
+		Metrics mt = metrics;
+		long start = mt == null ? 0 : System.nanoTime();
+		if (sampleFeatures.length != fg.getNumFeatures()) sampleFeatures = new double[fg.getNumFeatures()];
+		fg.generate(world, index, sampleFeatures, 0);
+		if (mt != null) mt.recordFeatures(System.nanoTime() - start);
+		if (s.accept(sampleFeatures, action)) sampleBuffer.addSample(sampleFeatures, action);
 	}
 	
 	/**
@@ -68,63 +203,544 @@ public class JetTrainer {
 	public void flushSampleBuffer() {sampleBuffer.clear();}
 	
 	/**
-	 * Produce an action in the form of the angle between the path of the Jet to the origin
-	 * and the path that the Jet should take from a given game state, in the form of a List of
-	 * Jets and the index of the perceiving Jet in that List.
+	 * Train on the Samples of the round if keep is True, and discard them otherwise
 	 */
-	public Angle getAngle(List<Jet> jets, int index) {
-		
-		if (!trained) throw new IllegalStateException("JetTrainer must be trained before calling getMovement().");
+	@Override
+	public void endRound(boolean keep) {
+		sampling.endRound();
+		if (keep) train();
+		else flushSampleBuffer();
+	}
+	
+	/**
+	 * Add round to the stored Samples on the training thread without training. May be called from
+	 * any thread. Blocks while MAX_PENDING_ROUNDS rounds are waiting to be stored. Rounds are committed
+	 * to the journal in groups, once no more rounds are waiting or COMMIT_ROUNDS rounds are uncommitted.
+	 */
+	@Override
+	public void addRound(final Samples round) {
+		roundSlots.acquireUninterruptibly();
+		trainer.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					uncommitted += 1;
+					boolean last = roundSlots.availablePermits() == MAX_PENDING_ROUNDS - 1;
+					store(round, last || uncommitted >= COMMIT_ROUNDS);
+				}
+				finally {
+					roundSlots.release();
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Produce an action in the form of the Action code of the path that the Jet should take relative
+	 * to its path to the origin from a given game state, in the form of a WorldSnapshot and the index
+	 * of the perceiving Jet in it. Features are generated into a buffer which is reused between calls,
+	 * so getAction must only be called by one thread at a time.
+	 */
+	public int getAction(WorldSnapshot world, int index) {
 		
-		double[] features = fg.generate(jets, index);
+		Model m = model;
+		if (m == null) throw new IllegalStateException("JetTrainer must be trained before calling getAction().");
 		
-		//convert features array to Instance for use with Weka
-		Instance i = new Instance(features.length + 1);
-		i.setDataset(instances);
-		for (int k=0; k<features.length; ++k) i.setValue(k, features[k]);
+		if (singleFeatures.length != fg.getNumFeatures()) singleFeatures = new double[fg.getNumFeatures()];
+		fg.generate(world, index, singleFeatures, 0);
 		
 		try {
 		
-			//classify Instance and return corresponding Angle
-			int l = (int) classifier.classifyInstance(i);
-			String aString = instances.classAttribute().value(l);
-			return new Angle(aString);
+			//classify features, unless their action is cached
+			PredictionCache c = cache;
+			int action = c == null ? PredictionCache.MISS : c.get(m, singleFeatures);
+			if (action == PredictionCache.MISS) {
+				action = m.classify(singleFeatures);
+				if (c != null) c.put(m, singleFeatures, action);
+			}
+			return action;
 		} 
 		
 		catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
-			return null;
+			return Action.IDLE;
 		}
 	}
 	
 	/**
-	 * Train the machine learning classifier on the set of stored Samples.
-	 * This can be time intensive.
+	 * Write to actions an action, as by getAction, for the Jet at each index in indices. Features are
+	 * generated and classified for all Jets in one pass which shares feature generation work and
+	 * classification buffers between Jets. Buffers are reused between calls, so getActions must only be
+	 * called by one thread at a time.
 	 */
-	public void train() {
+	@Override
+	public void getActions(WorldSnapshot world, int[] indices, int[] actions) {
+		
+		Model m = model;
+		if (m == null) throw new IllegalStateException("JetTrainer must be trained before calling getActions().");
+		
+		int n = indices.length;
+		if (batchFeatures.length < n) batchFeatures = Arrays.copyOf(batchFeatures, n);
 		
-		//Move Samples from sampleBuffer to trainSamples
-		trainSamples.addSamples(sampleBuffer);
-		sampleBuffer.clear();
-		instances = trainSamples.toInstances();
+		Metrics mt = metrics;
+		long start = mt == null ? 0 : System.nanoTime();
+		int numFeatures = fg.getNumFeatures();
+		for (int k=0; k<n; ++k) {
+			if (batchFeatures[k] == null || batchFeatures[k].length != numFeatures) batchFeatures[k] = new double[numFeatures];
+			fg.generate(world, indices[k], batchFeatures[k], 0);
+		}
+		long generated = mt == null ? 0 : System.nanoTime();
 		
 		try {
-			
-			//Train the classifier
-			System.out.println("Training with " + Integer.toString(trainSamples.size()) + " samples...");
-			classifier.buildClassifier(instances);
-			System.out.println("Done.");
-		} 
+			classify(m, batchFeatures, n, actions);
+		}
 		
 		catch (Exception e) {
 			e.printStackTrace();
 			System.exit(1);
 		}
 		
-		trained = true;
+		if (mt != null) {
+			mt.recordFeatures(generated - start);
+			mt.recordInference(System.nanoTime() - generated);
+		}
 	}
 	
-	public boolean isTrained() {return trained;}
+	/**
+	 * Write to actions the Action codes of the first n arrays of features. Actions are taken from the
+	 * PredictionCache where possible and the remaining features are classified by m together.
+	 */
+	private void classify(Model m, double[][] features, int n, int[] actions) throws Exception {
+		
+		PredictionCache c = cache;
+		if (c == null) {
+			m.classify(features, n, actions);
+			return;
+		}
+		
+		if (missIndices.length < n) {
+			missFeatures = new double[n][];
+			missActions = new int[n];
+			missIndices = new int[n];
+		}
+		
+		//Gather features whose actions are not cached
+		int misses = 0;
+		for (int k=0; k<n; ++k) {
+			actions[k] = c.get(m, features[k]);
+			if (actions[k] == PredictionCache.MISS) {
+				missIndices[misses] = k;
+				missFeatures[misses] = features[k];
+				misses += 1;
+			}
+		}
+		if (misses == 0) return;
+		
+		m.classify(missFeatures, misses, missActions);
+		for (int k=0; k<misses; ++k) {
+			actions[missIndices[k]] = missActions[k];
+			c.put(m, missFeatures[k], missActions[k]);
+		}
+	}
+	
+	/**
+	 * Hand the Samples added since the last training to the training thread, which adds them to the
+	 * stored Samples and trains a new classifier on them. The previously trained classifier is used
+	 * until the new one is complete. Returns a Future which completes when the new classifier is in use.
+	 */
+	public Future<?> train() {
+
+		final Samples round = sampleBuffer;
+		sampleBuffer = new Samples(numSamples);
+		final Long s = seed;
+
+		return trainer.submit(new Runnable() {
+			@Override
+			public void run() {
+
+				//Move Samples from sampleBuffer to trainSamples
+				long first = trainSamples.getAdded();
+				store(round);
+				if (trainSamples.isEmpty()) return;
+
+				try {
+					long start = System.nanoTime();
+					if (incremental) trainIncrement(round, first, s);
+					else trainAll(s);
+					recordTraining(start);
+				}
+
+				catch (Exception e) {
+					e.printStackTrace();
+					System.exit(1);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Decide with retention which Samples are kept among the stored Samples once capacity is reached,
+	 * starting from the next training. By default the oldest Samples are discarded.
+	 */
+	public void setRetentionPolicy(final RetentionPolicy retention) {
+		trainer.submit(new Runnable() {
+			@Override
+			public void run() {
+				trainSamples.setRetentionPolicy(retention);
+			}
+		});
+	}
+
+	/**
+	 * Add the Samples of journal to the stored Samples and train on them, then write every round of
+	 * Samples stored by later trainings to journal. Intended to be called once at startup. Returns a
+	 * Future which completes when the classifier trained on the replayed Samples is in use.
+	 */
+	public Future<?> useJournal(final SampleJournal journal) {
+		final Long s = seed;
+		return trainer.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					journal.replay(trainSamples);
+					JetTrainer.this.journal = journal;
+					if (trainSamples.isEmpty()) return;
+					System.out.println("Replayed " + Integer.toString(trainSamples.size()) + " samples from " + journal.getFile() + ".");
+
+					long start = System.nanoTime();
+					if (incremental) trainIncrement(trainSamples, 0, s);
+					else trainAll(s);
+					recordTraining(start);
+				}
+
+				catch (Exception e) {
+					e.printStackTrace();
+					System.exit(1);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Record in the Metrics, if any, a training which began at start and trained with the stored Samples
+	 */
+	private void recordTraining(long start) {
+		Metrics mt = metrics;
+		if (mt != null) mt.recordTraining(System.nanoTime() - start, trainSamples.size());
+	}
+	
+	/**
+	 * Add round to trainSamples and commit it to the journal
+	 */
+	private void store(Samples round) {
+		store(round, true);
+	}
+	
+	/**
+	 * Add round to trainSamples and to the journal, committing every uncommitted round if commit is True
+	 */
+	private void store(Samples round, boolean commit) {
+		trainSamples.addSamples(round);
+		if (journal != null) record(round, commit);
+	}
+	
+	/**
+	 * Write round to the journal and, if commit is True, commit it and every round written before it,
+	 * compacting the journal if it mostly holds discarded Samples. If the journal cannot be written, it
+	 * is closed and no longer used.
+	 */
+	private void record(Samples round, boolean commit) {
+		try {
+			journal.append(round);
+			if (!commit) return;
+			journal.commit();
+			uncommitted = 0;
+			if (journal.needsCompaction(trainSamples)) journal.compact(trainSamples);
+		}
+
+		catch (IOException e) {
+			e.printStackTrace();
+			System.out.println("Samples will no longer be written to " + journal.getFile() + ".");
+			try {
+				journal.close();
+			}
+			catch (IOException c) {}
+			journal = null;
+		}
+	}
+
+	/**
+	 * Train a copy of the classifier on all stored Samples with seed s, unless s is null, and publish it
+	 */
+	private void trainAll(Long s) throws Exception {
+		
+		ForestTrainer ft = forestTrainer;
+		if (ft != null) {
+			System.out.println("Training with " + Integer.toString(trainSamples.size()) + " samples on "
+					+ Integer.toString(ft.getParallelism()) + " threads...");
+			publish(s == null ? ft.train(trainSamples) : ft.train(trainSamples, s));
+			System.out.println("Done.");
+			return;
+		}
+		
+		Instances instances = trainSamples.toInstances();
+		
+		System.out.println("Training with " + Integer.toString(trainSamples.size()) + " samples...");
+		Classifier c = copyClassifier(s);
+		c.buildClassifier(instances);
+		System.out.println("Done.");
+		
+		//Publish the new classifier together with an empty copy of its Instances
+		publish(compile(c, new Instances(instances, 0)));
+	}
+	
+	/**
+	 * Write a snapshot of the Model in use to file, from which importModel() restores it without
+	 * training. Every kind of Model can be exported, but only compiled forests are written as plain
+	 * arrays, while other Models hold Weka Classifiers which are serialized and load more slowly. The
+	 * snapshot is written to a separate file which replaces file when complete, so a JetTrainer importing
+	 * file never reads a partial snapshot. Throws IllegalStateException if no Model is in use.
+	 */
+	public void exportModel(File file) throws IOException {
+		
+		Model m = model;
+		if (m == null) throw new IllegalStateException("No model has been trained.");
+		
+		File partial = new File(file.getPath() + ".partial");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partial)));
+		try {
+			ModelSnapshot.write(m, fg.getNumFeatures(), out);
+		}
+		finally {
+			out.close();
+		}
+		Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * Publish the Model of a snapshot written by exportModel() to file, as if it had just been trained.
+	 * May be called while the game runs to replace the Model in use with a newer snapshot. Throws
+	 * IOException if file does not hold a snapshot for the features of this JetTrainer. An imported
+	 * ensemble is published as it is, and later incremental trainings start a new ensemble.
+	 */
+	public void importModel(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			publish(ModelSnapshot.read(in, fg.getNumFeatures()));
+		}
+		finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Publish m as the Model in use, unless it must be held back until the limit on versions is raised
+	 */
+	private void publish(Model m) {
+		synchronized (heldModels) {
+			modelsTrained += 1;
+			heldModels.add(m);
+			release();
+			heldModels.notifyAll();
+		}
+	}
+	
+	/**
+	 * Publish held Models in order up to the limit on versions. Called while holding the lock of heldModels.
+	 */
+	private void release() {
+		while (!heldModels.isEmpty() && (modelLimit < 0 || modelVersion < modelLimit)) {
+			model = heldModels.poll();
+			modelVersion += 1;
+		}
+	}
+	
+	/**
+	 * Return a CompiledForest of classifier if it is a RandomForest and compiling is enabled, or a
+	 * WekaModel of classifier otherwise or if the RandomForest cannot be compiled.
+	 */
+	private Model compile(Classifier c, Instances header) {
+		if (compileForest && c instanceof RandomForest) {
+			try {
+				return CompiledForest.compile((RandomForest) c, header);
+			}
+			catch (IllegalArgumentException e) {
+				System.out.println("RandomForest could not be compiled: " + e.getMessage());
+			}
+		}
+		return new WekaModel(c, header);
+	}
+	
+	/**
+	 * Train a copy of the classifier on the Samples of the latest round only and add it to the ensemble,
+	 * retiring members whose Samples have all been discarded from trainSamples. The Samples of round have
+	 * sequence numbers from first onwards in trainSamples. The classifier is seeded with s unless s is
+	 * null. Publish the ensemble.
+	 */
+	private void trainIncrement(Samples round, long first, Long s) throws Exception {
+		
+		WekaModel m = null;
+		if (!round.isEmpty()) {
+			Instances instances = round.toInstances();
+			
+			System.out.println("Training with " + Integer.toString(round.size()) + " new samples...");
+			Classifier c = copyClassifier(s);
+			c.buildClassifier(instances);
+			System.out.println("Done.");
+			
+			m = new WekaModel(c, new Instances(instances, 0));
+		}
+		
+		ensemble = ensemble.update(m, round.size(), first, trainSamples);
+		System.out.println("Ensemble has " + Integer.toString(ensemble.size()) + " members.");
+		if (!ensemble.isEmpty()) publish(ensemble);
+	}
+	
+	/**
+	 * Choose whether future trainings add a classifier trained on only the newest Samples to an ensemble,
+	 * retiring classifiers whose Samples have been discarded, rather than training on all stored Samples.
+	 * The cost of an incremental training depends only on the number of Samples added since the last training.
+	 */
+	public void setIncremental(boolean incremental) {this.incremental = incremental;}
+	
+	public boolean isIncremental() {return incremental;}
+	
+	/**
+	 * Choose whether a trained RandomForest is compiled into flat arrays which are evaluated directly
+	 * on arrays of features. Compiled forests make the same predictions as the RandomForest. Enabled
+	 * by default.
+	 */
+	public void setCompileForest(boolean compileForest) {this.compileForest = compileForest;}
+	
+	public boolean isCompileForest() {return compileForest;}
+	
+	/**
+	 * Grow forests with forestTrainer on the stored Samples in place of the classifier, or train the
+	 * classifier if forestTrainer is null. Incremental training always uses the classifier.
+	 */
+	public void setForestTrainer(ForestTrainer forestTrainer) {this.forestTrainer = forestTrainer;}
+	
+	public ForestTrainer getForestTrainer() {return forestTrainer;}
+	
+	/**
+	 * Cache predictions in cache, or stop caching predictions if cache is null. The cache is emptied
+	 * whenever a newly trained Model is used. Its counts of hits and misses are available from
+	 * getPredictionCache().
+	 */
+	public void setPredictionCache(PredictionCache cache) {this.cache = cache;}
+	
+	public PredictionCache getPredictionCache() {return cache;}
+	
+	/**
+	 * Decide with sampling which ticks added by addSample are recorded, starting from the next tick. By
+	 * default every tick is recorded.
+	 */
+	public void setSamplingPolicy(SamplingPolicy sampling) {
+		if (sampling == null) throw new IllegalArgumentException("'sampling' must not be null.");
+		this.sampling = sampling;
+	}
+	
+	public SamplingPolicy getSamplingPolicy() {return sampling;}
+	
+	/**
+	 * Record the latencies of feature generation, inference and training in metrics, or stop recording
+	 * them if metrics is null
+	 */
+	public void setMetrics(Metrics metrics) {this.metrics = metrics;}
+	
+	public Metrics getMetrics() {return metrics;}
+	
+	/**
+	 * Return the version of the Model in use, which is the number of Models published since construction.
+	 * Every training and every importModel() publishes one Model.
+	 */
+	public int getModelVersion() {
+		synchronized (heldModels) {
+			return modelVersion;
+		}
+	}
+	
+	/**
+	 * Return the number of Models trained or imported since construction, including those held back by the
+	 * limit on versions
+	 */
+	public int getModelsTrained() {
+		synchronized (heldModels) {
+			return modelsTrained;
+		}
+	}
+	
+	/**
+	 * Publish trained Models only up to version, holding back later Models until the limit is raised, or
+	 * publish every Model once it is trained if version is negative. Held Models that are now within the
+	 * limit are published before returning, so a limit set between ticks decides the Model of the next tick.
+	 */
+	public void setModelLimit(int version) {
+		synchronized (heldModels) {
+			modelLimit = version;
+			release();
+		}
+	}
+	
+	/**
+	 * Wait until at least n Models have been trained since construction
+	 */
+	public void awaitModels(int n) throws InterruptedException {
+		synchronized (heldModels) {
+			while (modelsTrained < n) heldModels.wait();
+		}
+	}
+	
+	/**
+	 * Return a copy of the untrained classifier, seeded with s if s is not null and the classifier is
+	 * randomized. The classifier itself is never modified, so it may be copied while seeds are set.
+	 */
+	private Classifier copyClassifier(Long s) throws Exception {
+		Classifier c = Classifier.makeCopy(classifier);
+		if (s != null && c instanceof Randomizable) ((Randomizable) c).setSeed(toIntSeed(s));
+		return c;
+	}
+	
+	/**
+	 * Return the int seed of a Weka classifier for seed. Seeds which fit in an int are used as they are,
+	 * and others have their high word mixed into their low word, so that seeds which differ only in their
+	 * high words are unlikely to collide.
+	 */
+	static int toIntSeed(long seed) {
+		if (seed == (int) seed) return (int) seed;
+		return (int) (seed ^ (seed >>> 32)) ^ (int) ((seed >>> 32) * 0x9E3779B9L);
+	}
+	
+	/**
+	 * Return the seed set by setSeed(), or else the seed of the ForestTrainer if there is one, or of the
+	 * classifier if it is randomized, or 0
+	 */
+	public long getSeed() {
+		Long s = seed;
+		if (s != null) return s;
+		ForestTrainer ft = forestTrainer;
+		if (ft != null) return ft.getSeed();
+		if (classifier instanceof Randomizable) return ((Randomizable) classifier).getSeed();
+		return 0;
+	}
+	
+	/**
+	 * Seed future trainings of the ForestTrainer, if there is one, and of the classifier, if it is
+	 * randomized. The seed is passed to each training when it is submitted, so neither the ForestTrainer
+	 * nor the classifier is modified. Weka classifiers take int seeds, to which seed is reduced by
+	 * toIntSeed().
+	 */
+	public void setSeed(long seed) {this.seed = seed;}
+	
+	/**
+	 * Return the maximum number of Samples trained with
+	 */
+	public int getCapacity() {return numSamples;}
+	
+	public boolean isTrained() {return model != null;}
+	
+	@Override
+	public boolean isReady() {return model != null;}
 	
 }
@@ -0,0 +1,21 @@
+package learn;
+
+/**
+ *A trained classifier which maps arrays of features to Action codes. Labels of the class values are
+ *translated to codes once when the Model is made, so classifying parses nothing. A Model is never
+ *modified after it is published by a JetTrainer, so it may be read while a newer Model is trained.
+ */
+interface Model {
+
+	/**
+	 * Return the Action code which the Model predicts for an array of features
+	 */
+	int classify(double[] features) throws Exception;
+
+	/**
+	 * Write to actions the Action code which the Model predicts for each of the first n arrays of
+	 * features. Buffers needed for classification are shared by all n arrays.
+	 */
+	void classify(double[][] features, int n, int[] actions) throws Exception;
+
+}
@@ -0,0 +1,78 @@
+package learn;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ *Binary snapshots of published Models, written by JetTrainer.exportModel() and read by importModel().
+ *A snapshot begins with a magic number, its version, the number of features the Model classifies and
+ *the kind of Model, followed by the Model itself. A CompiledForest stores its node arrays directly and
+ *loads in milliseconds. WekaModels, and the members of an EnsembleModel, store their Classifier with
+ *Java serialization together with the header it was trained on, which takes longer to load but means
+ *that every Model a JetTrainer publishes can be exported.
+ */
+final class ModelSnapshot {
+
+	private static final int MAGIC = 0x534A4D44;
+	private static final int VERSION = 2;
+
+	/**
+	 * Kinds of Model
+	 */
+	private static final int FOREST = 0;
+	private static final int WEKA = 1;
+	private static final int ENSEMBLE = 2;
+
+	private ModelSnapshot() {}
+
+	/**
+	 * Write a snapshot of m, which classifies numFeatures features, to out
+	 */
+	static void write(Model m, int numFeatures, DataOutputStream out) throws IOException {
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(numFeatures);
+		if (m instanceof CompiledForest) {
+			out.writeInt(FOREST);
+			((CompiledForest) m).write(out);
+		}
+		else if (m instanceof WekaModel) {
+			out.writeInt(WEKA);
+			((WekaModel) m).write(out);
+		}
+		else if (m instanceof EnsembleModel) {
+			out.writeInt(ENSEMBLE);
+			((EnsembleModel) m).write(out);
+		}
+		else throw new IllegalArgumentException("Models of " + m.getClass() + " cannot be written.");
+	}
+
+	/**
+	 * Read a snapshot written by write() from in. Throws IOException if in does not hold a valid snapshot
+	 * or the snapshot is not of a Model which classifies numFeatures features.
+	 */
+	static Model read(DataInputStream in, int numFeatures) throws IOException {
+
+		if (in.readInt() != MAGIC) throw new IOException("Not a model snapshot.");
+		int version = in.readInt();
+		if (version != VERSION) throw new IOException("Unsupported model snapshot version " + version + ".");
+		int features = in.readInt();
+		if (features != numFeatures) throw new IOException("Model snapshot has " + features + " features but "
+				+ numFeatures + " are generated.");
+
+		int kind = in.readInt();
+		switch (kind) {
+		case FOREST:
+			return CompiledForest.read(in, numFeatures);
+		case WEKA:
+			return WekaModel.read(in, numFeatures);
+		case ENSEMBLE:
+			return EnsembleModel.read(in, numFeatures);
+		default:
+			throw new IOException("Model snapshot has unknown kind " + kind + ".");
+		}
+	}
+
+}
@@ -3,18 +3,16 @@ package learn;
 
 import game.Angle;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
-import jet.Jet;
-import jet.Projectile;
-
-import weka.core.Instance;
+import jet.Geometry;
 
+/**
+ *Generates the relative polar coordinates of the PROJ_OBSERVED enemy Projectiles closest to a Jet
+ *and the Jet's distance from the origin. The closest are selected in a single pass over the enemy
+ *Projectiles of the WorldSnapshot using reusable buffers, so a MyFeatureGenerator must not be shared
+ *between threads.
+ */
 public class MyFeatureGenerator implements FeatureGenerator{
 	
 	/**
@@ -22,68 +20,84 @@ public class MyFeatureGenerator implements FeatureGenerator{
 	 */
 	private final int PROJ_OBSERVED = 3; 
 	
-	public double[] generate(List<Jet> jets, int index) {
+	private final int NUM_FEATURES = 2 * PROJ_OBSERVED + 1;
+	
+	/**
+	 * Indices in the enemy Projectiles of the WorldSnapshot of the closest enemy Projectiles found by the
+	 * last call to nearestProjectiles and their squared distances from the Jet, in ascending order of distance
+	 */
+	private final int[] nearest = new int[PROJ_OBSERVED];
+	private final double[] nearestDist2 = new double[PROJ_OBSERVED];
+	
+	/**
+	 * Squared distances of all enemy Projectiles from the current Jet
+	 */
+	private double[] enemyDist2 = new double[64];
+	
+	/**
+	 * Relative polar coordinates of the closest enemy Projectiles
+	 */
+	private final double[] angles = new double[PROJ_OBSERVED];
+	private final double[] distances = new double[PROJ_OBSERVED];
+	
+	@Override
+	public int getNumFeatures() {return NUM_FEATURES;}
+	
+	@Override
+	public void generate(WorldSnapshot world, int index, double[] features, int offset) {
 		
-		if (index >= jets.size()) throw new IndexOutOfBoundsException("'index' must specifiy index of Jet in 'jets'.");
-		Jet j = jets.get(index);
+		if (index >= world.getNumJets()) throw new IndexOutOfBoundsException("'index' must specifiy index of Jet in 'world'.");
+		double x = world.getJetX(index);
+		double y = world.getJetY(index);
+		int team = world.getJetTeam(index);
+		double[] enemyX = world.getEnemyX(team);
+		double[] enemyY = world.getEnemyY(team);
 		
-		double[] features = new double[2 * PROJ_OBSERVED + 1];
-		Arrays.fill(features, Double.NaN);
+		Arrays.fill(features, offset, offset + NUM_FEATURES, Double.NaN);
 		
-		Projectile[] sorted = sortedProjectiles(jets, j);
+		int found = nearestProjectiles(x, y, enemyX, enemyY, world.getNumEnemies(team));
 		
-		for (int k=0; k<Math.min(sorted.length, PROJ_OBSERVED); ++k) {
-			Projectile p = sorted[k];
-
-			//get angle between path from Jet to Projectile and path from Jet to origin
-			features[2*k] = Angle.normalize(j.angleTo(p) - j.angleToOrigin());
-			
-			//get distance between Jet and Projectile
-			features[2*k + 1] = j.distanceTo(p);
+		//get angles between paths from Jet to Projectiles and path from Jet to origin, and distances
+		//between Jet and Projectiles
+		Geometry.relativePolar(x, y, world.getJetAngle(index), enemyX, enemyY, nearest, found, angles, distances);
+		for (int k=0; k<found; ++k) {
+			features[offset + 2*k] = Angle.normalize(angles[k]);
+			features[offset + 2*k + 1] = distances[k];
 		}
 		
 		//get distance between Jet and origin
-		features[6] = j.distanceToOrigin();
-		
-		return features;
+		features[offset + 6] = world.getJetDistance(index);
 	}
 	
 	/**
-	 * Return array containing all Projectiles belonging to enemy Jets in jets,
-	 * sorted in ascending order by distance from Jet j
+	 * Find the PROJ_OBSERVED of the first numEnemies enemy Projectiles which are closest to (x, y), or all
+	 * of them if there are fewer, and store them in nearest in ascending order of distance. Projectiles at
+	 * equal distances are ordered by index. Return the number found.
 	 */
-	private Projectile[] sortedProjectiles(List<Jet> jets, Jet j) {
+	private int nearestProjectiles(double x, double y, double[] enemyX, double[] enemyY, int numEnemies) {
 		
-		//Collect all enemy Projectiles
-		List<Projectile> projectiles = new ArrayList<Projectile>();
-		for (Jet k: jets) {
-			if (!k.getTeam().equals(j.getTeam())) projectiles.addAll(k.getProjectiles());
-		}
+		if (enemyDist2.length < numEnemies) enemyDist2 = new double[Math.max(numEnemies, 2 * enemyDist2.length)];
+		Geometry.squaredDistances(x, y, enemyX, enemyY, numEnemies, enemyDist2);
+		int found = 0;
 		
-		//create map from a distance to a List of Projectiles at that distance from Jet j
-		Map<Double,ArrayList<Projectile>> distances = new HashMap<Double,ArrayList<Projectile>>();
-		for (Projectile p: projectiles) {
-			double xDiff = p.getX() - j.getX();
-			double yDiff = p.getY() - j.getY();
-			double distance = Math.sqrt(Math.pow(xDiff, 2) + Math.pow(yDiff, 2));
-			if (distances.get(distance) == null) distances.put(distance, new ArrayList<Projectile>());
-			distances.get(distance).add(p);
-		}
-		
-		//Sort keys from distance map
-		List<Double> keys = new ArrayList<Double>(distances.keySet());
-		Collections.sort(keys);
-		
-		//Add each Projectile from distance map to array in ascending order of distance
-		int i = 0;
-		Projectile[] sorted = new Projectile[projectiles.size()];
-		for (Double d: keys) {
-			for (Projectile p: distances.get(d)) {
-				sorted[i] = p;
-				++i;
+		for (int i=0; i<numEnemies; ++i) {
+			
+			double dist2 = enemyDist2[i];
+			
+			//Skip Projectiles farther than all of those already found
+			if (found == PROJ_OBSERVED && !Geometry.closer(dist2, nearestDist2[found - 1])) continue;
+			
+			//Insert Projectile, shifting farther Projectiles back and dropping the farthest when full
+			int k = found < PROJ_OBSERVED ? found++ : found - 1;
+			while (k > 0 && Geometry.closer(dist2, nearestDist2[k - 1])) {
+				nearest[k] = nearest[k - 1];
+				nearestDist2[k] = nearestDist2[k - 1];
+				--k;
 			}
+			nearest[k] = i;
+			nearestDist2[k] = dist2;
 		}
-		return sorted;
+		return found;
 	}
 	
 }
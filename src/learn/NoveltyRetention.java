@@ -0,0 +1,102 @@
+package learn;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *Discards Samples which are near-duplicates of a stored Sample. Features are quantized into cells of a
+ *fixed width, and a new Sample is discarded if a stored Sample with the same label lies in the same cell.
+ *Consecutive ticks of a round produce many such Samples. Samples which are kept are placed by another
+ *RetentionPolicy.
+ */
+public class NoveltyRetention implements RetentionPolicy {
+
+	/**
+	 * Quantized value of missing features
+	 */
+	private static final long MISSING = Long.MIN_VALUE;
+
+	private final double width;
+
+	private final RetentionPolicy next;
+
+	/**
+	 * Number of stored Samples in each cell, identified by a hash of its label and quantized features
+	 */
+	private final Map<Long,Integer> cells = new HashMap<Long,Integer>();
+
+	private long discarded = 0;
+
+	/**
+	 * Construct NoveltyRetention with cells of width in every feature, which places the Samples it keeps
+	 * with next
+	 */
+	public NoveltyRetention(double width, RetentionPolicy next) {
+		if (!(width > 0)) throw new IllegalArgumentException("Width must be greater than zero.");
+		this.width = width;
+		this.next = next;
+	}
+
+	/**
+	 * Construct NoveltyRetention with cells of width in every feature, which discards the oldest Sample
+	 * when Samples is full
+	 */
+	public NoveltyRetention(double width) {
+		this(width, new FifoRetention());
+	}
+
+	@Override
+	public int place(Samples samples, double[] features, int label) {
+		long h = label;
+		for (int k=0; k<features.length; ++k) h = mix(h, features[k]);
+		if (cells.containsKey(h)) {
+			discarded += 1;
+			return DISCARD;
+		}
+		return next.place(samples, features, label);
+	}
+
+	@Override
+	public void stored(Samples samples, int slot) {
+		long h = cell(samples, slot);
+		Integer n = cells.get(h);
+		cells.put(h, n == null ? 1 : n + 1);
+		next.stored(samples, slot);
+	}
+
+	@Override
+	public void removed(Samples samples, int slot) {
+		long h = cell(samples, slot);
+		Integer n = cells.get(h);
+		if (n != null && n > 1) cells.put(h, n - 1);
+		else cells.remove(h);
+		next.removed(samples, slot);
+	}
+
+	@Override
+	public void clear() {
+		cells.clear();
+		next.clear();
+	}
+
+	/**
+	 * Return the number of Samples discarded as near-duplicates
+	 */
+	public long getDiscarded() {return discarded;}
+
+	private long cell(Samples samples, int slot) {
+		long h = samples.getLabelAt(slot);
+		for (int k=0; k<samples.getNumFeatures(); ++k) h = mix(h, samples.getFeatureAt(slot, k));
+		return h;
+	}
+
+	/**
+	 * Return hash h combined with the quantized value of feature
+	 */
+	private long mix(long h, double feature) {
+		long q = Double.isNaN(feature) ? MISSING : (long) Math.floor(feature / width);
+		h = (h ^ q) * 0x9E3779B97F4A7C15L;
+		return h ^ (h >>> 29);
+	}
+
+}
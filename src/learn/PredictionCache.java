@@ -0,0 +1,202 @@
+package learn;
+
+import java.util.Arrays;
+
+/**
+ *Caches the Action codes predicted by a Model for arrays of features. Features are quantized by dividing each
+ *by a step and rounding down, and arrays of features with equal quantized values share one entry. The
+ *cache has a fixed number of entries, each quantized array of features maps to one of them, and a new
+ *entry evicts whichever entry occupied its place. All entries are dropped when the cache is used with a
+ *different Model than the one it was filled by. Counts of hits, misses and evictions are kept so that
+ *the quantization step can be tuned against prediction quality.
+ *
+ *A PredictionCache must only be used by one thread at a time. Its counts are only written by that
+ *thread but may be read by any thread, such as a monitor reporting the hit rate.
+ */
+public class PredictionCache {
+
+	/**
+	 * Returned by get() when no Action code is cached
+	 */
+	static final int MISS = -1;
+
+	/**
+	 * Quantized value of missing features
+	 */
+	private static final long MISSING = Long.MIN_VALUE;
+
+	private final int capacity;
+
+	/**
+	 * Quantization step of each feature. The last step is used for features beyond the array.
+	 */
+	private final double[] steps;
+
+	/**
+	 * Quantized features of each entry, numFeatures values per entry
+	 */
+	private long[] keys;
+	private final int[] actions;
+	private final boolean[] used;
+	private int numFeatures = -1;
+
+	/**
+	 * Model which predicted the cached Action codes
+	 */
+	private Model model;
+
+	private final long[] quantized = new long[64];
+
+	/**
+	 * Counts written by the thread using the cache and read by any thread
+	 */
+	private volatile long hits = 0, misses = 0, evictions = 0, invalidations = 0;
+	private volatile int size = 0;
+
+	/**
+	 * Construct PredictionCache with room for capacity entries, rounded up to a power of two, and a
+	 * single quantization step for all features.
+	 */
+	public PredictionCache(int capacity, double step) {
+		this(capacity, new double[] {step});
+	}
+
+	/**
+	 * Construct PredictionCache with room for capacity entries, rounded up to a power of two, and a
+	 * quantization step for each feature. The last step is used for any further features.
+	 */
+	public PredictionCache(int capacity, double[] steps) {
+		if (capacity <= 0) throw new IllegalArgumentException("Capacity must be greater than zero.");
+		if (steps.length == 0) throw new IllegalArgumentException("At least one step is required.");
+		for (double s: steps) {
+			if (!(s > 0)) throw new IllegalArgumentException("Steps must be greater than zero.");
+		}
+		int c = 1;
+		while (c < capacity) c <<= 1;
+		this.capacity = c;
+		this.steps = steps.clone();
+		actions = new int[c];
+		used = new boolean[c];
+	}
+
+	/**
+	 * Return the Action code cached for features as predicted by model, or MISS if there is none.
+	 */
+	int get(Model model, double[] features) {
+		if (model != this.model) invalidate(model);
+		int slot = quantize(features);
+		if (slot >= 0 && used[slot] && matches(slot, features.length)) {
+			hits += 1;
+			return actions[slot];
+		}
+		misses += 1;
+		return MISS;
+	}
+
+	/**
+	 * Cache action as the prediction of model for features, evicting the entry in its place
+	 */
+	void put(Model model, double[] features, int action) {
+		if (model != this.model) invalidate(model);
+		if (numFeatures < 0) {
+			numFeatures = features.length;
+			keys = new long[capacity * numFeatures];
+		}
+		int slot = quantize(features);
+		if (slot < 0) return;
+		if (used[slot]) {
+			if (!matches(slot, numFeatures)) evictions += 1;
+		}
+		else size += 1;
+		System.arraycopy(quantized, 0, keys, slot * numFeatures, numFeatures);
+		actions[slot] = action;
+		used[slot] = true;
+	}
+
+	/**
+	 * Drop all entries and associate the cache with model
+	 */
+	private void invalidate(Model model) {
+		if (size > 0) invalidations += 1;
+		Arrays.fill(used, false);
+		size = 0;
+		this.model = model;
+	}
+
+	/**
+	 * Write the quantized values of features to quantized and return the entry they map to, or -1 if
+	 * features cannot be cached
+	 */
+	private int quantize(double[] features) {
+		if (features.length > quantized.length || (numFeatures >= 0 && features.length != numFeatures)) return -1;
+		long h = 0;
+		for (int k=0; k<features.length; ++k) {
+			double f = features[k];
+			long q = Double.isNaN(f) ? MISSING : (long) Math.floor(f / steps[Math.min(k, steps.length - 1)]);
+			quantized[k] = q;
+			h = 31 * h + q;
+		}
+
+		//Spread the bits of the hash before masking
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return (int) h & (capacity - 1);
+	}
+
+	/**
+	 * Return True if the entry at slot holds the last quantized features
+	 */
+	private boolean matches(int slot, int n) {
+		if (n != numFeatures) return false;
+		int offset = slot * numFeatures;
+		for (int k=0; k<n; ++k) {
+			if (keys[offset + k] != quantized[k]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Drop all entries and reset all counts
+	 */
+	public void clear() {
+		invalidate(null);
+		resetStats();
+	}
+
+	public void resetStats() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		invalidations = 0;
+	}
+
+	/**
+	 * Return the fraction of lookups which found a cached Action code, or NaN if there have been none
+	 */
+	public double getHitRate() {
+		long h = hits;
+		long lookups = h + misses;
+		return lookups == 0 ? Double.NaN : h / (double) lookups;
+	}
+
+	public long getHits() {return hits;}
+	public long getMisses() {return misses;}
+	public long getEvictions() {return evictions;}
+
+	/**
+	 * Return the number of times cached entries were dropped because a new Model was used
+	 */
+	public long getInvalidations() {return invalidations;}
+
+	public int size() {return size;}
+	public int getCapacity() {return capacity;}
+
+	@Override
+	public String toString() {
+		return "PredictionCache[size=" + size + "/" + capacity + ", hits=" + hits + ", misses=" + misses
+				+ ", hitRate=" + String.format("%.3f", getHitRate()) + ", evictions=" + evictions
+				+ ", invalidations=" + invalidations + "]";
+	}
+
+}
@@ -0,0 +1,41 @@
+package learn;
+
+import java.util.Random;
+
+/**
+ *Keeps a uniform random sample of all Samples ever added. When Samples is full, the n-th added Sample
+ *is stored with probability capacity / n in place of a randomly chosen stored Sample, so old rounds
+ *remain represented however many Samples a single round adds.
+ */
+public class ReservoirRetention implements RetentionPolicy {
+
+	private final Random random;
+
+	public ReservoirRetention(long seed) {
+		random = new Random(seed);
+	}
+
+	public ReservoirRetention() {
+		random = new Random();
+	}
+
+	@Override
+	public int place(Samples samples, double[] features, int label) {
+		if (!samples.isFull()) return APPEND;
+
+		//Choose uniformly among the Samples added so far, including the new one
+		long n = samples.getAdded() + 1;
+		long k = (long) (random.nextDouble() * n);
+		return k < samples.size() ? (int) k : DISCARD;
+	}
+
+	@Override
+	public void stored(Samples samples, int slot) {}
+
+	@Override
+	public void removed(Samples samples, int slot) {}
+
+	@Override
+	public void clear() {}
+
+}
@@ -0,0 +1,43 @@
+package learn;
+
+/**
+ *Decides which Samples are kept by a Samples object with a limited capacity. Every added Sample is
+ *either stored in a new slot, stored in the slot of a Sample which it replaces, or discarded. A
+ *RetentionPolicy may keep state about the stored Samples, so it is told of every Sample stored and
+ *removed, and it must only be used by one Samples object.
+ */
+public interface RetentionPolicy {
+
+	/**
+	 * Returned by place() to store a new Sample in a new slot
+	 */
+	public static final int APPEND = -1;
+
+	/**
+	 * Returned by place() to discard a new Sample
+	 */
+	public static final int DISCARD = -2;
+
+	/**
+	 * Return the slot of samples in which a new Sample with features and label code label should be
+	 * stored, replacing the Sample in that slot, or APPEND or DISCARD. APPEND may only be returned while
+	 * samples is not full.
+	 */
+	public int place(Samples samples, double[] features, int label);
+
+	/**
+	 * Called after a Sample has been stored in slot of samples
+	 */
+	public void stored(Samples samples, int slot);
+
+	/**
+	 * Called before the Sample in slot of samples is replaced
+	 */
+	public void removed(Samples samples, int slot);
+
+	/**
+	 * Forget all state about stored Samples. Called when samples are cleared.
+	 */
+	public void clear();
+
+}
@@ -18,6 +18,11 @@ public class Sample {
 	}
 	
 	public double[] getFeatures() {return features.clone();}
+
+	/**
+	 * Return the features without copying them, for Samples to copy into its columns
+	 */
+	double[] features() {return features;}
 	public String getLabel() {return label;}
 	
 	/**
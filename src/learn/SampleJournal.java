@@ -0,0 +1,351 @@
+package learn;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *An append-only file of Samples, accessed through a memory-mapped buffer, so that stored Samples
+ *survive restarts. The file begins with a header, which holds the number of features of every Sample and
+ *the length of the committed records, and is followed by records of two kinds. A label record defines
+ *the next label code and a sample record holds a label code and the features of one Sample.
+ *
+ *Records are appended as rounds of Samples are stored and only become part of the journal when commit()
+ *writes the header, so records written before a crash but not committed are ignored. Because Samples
+ *discards old Samples, most records eventually describe Samples which are no longer stored. compact()
+ *rewrites the journal with only the stored Samples.
+ *
+ *The file grows by doubling the mapped length. Mappings which are replaced, or which remain when the
+ *journal is closed, are released at once rather than when they are garbage collected, so that the file
+ *can be replaced by compact() on every platform and no stale mappings accumulate.
+ *
+ *A SampleJournal must only be used by one thread at a time.
+ */
+public class SampleJournal implements Closeable {
+
+	private static final int MAGIC = 0x534A534A;
+	private static final int VERSION = 1;
+
+	/**
+	 * Header is the magic number, version, number of features, an unused int, the offset past the last
+	 * committed record and the number of committed sample records
+	 */
+	private static final int HEADER = 32;
+	private static final int NUM_FEATURES = 8;
+	private static final int END = 16;
+	private static final int RECORDS = 24;
+
+	/**
+	 * Code which begins a label record
+	 */
+	private static final int LABEL = -1;
+
+	/**
+	 * Number of bytes mapped when a journal is opened, unless the file is longer
+	 */
+	private static final int INITIAL_MAPPING = 1 << 20;
+
+	private final File file;
+	private FileChannel channel;
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Number of features of every Sample, or -1 if no Sample has been committed
+	 */
+	private int numFeatures = -1;
+
+	/**
+	 * Offset past the last committed record and past the last written record
+	 */
+	private int end, position;
+
+	/**
+	 * Number of committed sample records and of sample records written since the last commit
+	 */
+	private long records, pending;
+
+	/**
+	 * Label of each label code, in order of the label records
+	 */
+	private final List<String> labels = new ArrayList<String>();
+	private final Map<String,Integer> codes = new HashMap<String,Integer>();
+
+	/**
+	 * Open the journal in file, creating the file if it does not exist. Throws IOException if the
+	 * file is not a journal or its committed records are corrupt.
+	 */
+	public SampleJournal(File file) throws IOException {
+		this.file = file;
+		open();
+	}
+
+	private void open() throws IOException {
+
+		channel = new RandomAccessFile(file, "rw").getChannel();
+		long length = channel.size();
+		if (length > Integer.MAX_VALUE) throw new IOException("Journal " + file + " is too large.");
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(length, INITIAL_MAPPING));
+
+		labels.clear();
+		codes.clear();
+		pending = 0;
+
+		//A new file is given an empty header
+		if (length == 0) {
+			numFeatures = -1;
+			end = HEADER;
+			records = 0;
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, VERSION);
+			writeHeader();
+			position = end;
+			return;
+		}
+
+		if (length < HEADER || buffer.getInt(0) != MAGIC) throw new IOException(file + " is not a sample journal.");
+		if (buffer.getInt(4) != VERSION) throw new IOException("Journal " + file + " has unsupported version " + buffer.getInt(4) + ".");
+		numFeatures = buffer.getInt(NUM_FEATURES);
+		long e = buffer.getLong(END);
+		if (e < HEADER || e > length) throw new IOException("Journal " + file + " is corrupt.");
+		end = (int) e;
+		records = buffer.getLong(RECORDS);
+		position = end;
+
+		//Read the label records so that appended records continue the label codes
+		long count = 0;
+		int p = HEADER;
+		while (p < end) {
+			if (p + 4 > end) throw corrupt(p);
+			int code = buffer.getInt(p);
+			if (code == LABEL) {
+				p = readLabel(p);
+				continue;
+			}
+			if (numFeatures < 0 || code < 0 || code >= labels.size()) throw corrupt(p);
+			p += sampleLength();
+			count += 1;
+		}
+		if (p != end || count != records) throw corrupt(p);
+	}
+
+	/**
+	 * Add every committed Sample of the journal to samples, oldest first
+	 */
+	public void replay(Samples samples) throws IOException {
+
+		if (records == 0) return;
+
+		//Label codes of samples for each label code of the journal
+		int[] toSamples = new int[labels.size()];
+		for (int c=0; c<toSamples.length; ++c) toSamples[c] = samples.getLabelCode(labels.get(c));
+
+		double[] features = new double[numFeatures];
+		int p = HEADER;
+		while (p < end) {
+			int code = buffer.getInt(p);
+			if (code == LABEL) {
+				p += 8 + buffer.getInt(p + 4);
+				continue;
+			}
+			p += 4;
+			for (int k=0; k<numFeatures; ++k, p += 8) features[k] = buffer.getDouble(p);
+			samples.add(features, toSamples[code]);
+		}
+	}
+
+	/**
+	 * Write every Sample of samples, oldest first. The Samples become part of the journal on the next commit().
+	 */
+	public void append(Samples samples) throws IOException {
+
+		if (samples.isEmpty()) return;
+		if (numFeatures < 0) numFeatures = samples.getNumFeatures();
+		if (samples.getNumFeatures() != numFeatures)
+			throw new IllegalArgumentException("Number of features must be consistent for journaled Samples.");
+
+		//Label codes of the journal for each label code of samples, looked up when first needed
+		int[] toJournal = new int[samples.numLabelCodes()];
+		Arrays.fill(toJournal, -1);
+
+		for (int i=0; i<samples.size(); ++i) {
+			int c = samples.getLabelCode(i);
+			if (toJournal[c] < 0) toJournal[c] = code(samples.getLabelName(c));
+
+			reserve(sampleLength());
+			buffer.putInt(position, toJournal[c]);
+			position += 4;
+			for (int k=0; k<numFeatures; ++k, position += 8) buffer.putDouble(position, samples.getFeature(i, k));
+			pending += 1;
+		}
+	}
+
+	/**
+	 * Make every record written since the last commit part of the journal and force the journal to disk
+	 */
+	public void commit() {
+
+		//The records are forced before the header which refers to them is written. Dirty pages of a mapping
+		//may reach the disk in any order, so with a single force a crash could leave a header committing
+		//records which were never written, and replay would read whatever the file held there.
+		buffer.force();
+		end = position;
+		records += pending;
+		pending = 0;
+		writeHeader();
+
+		//Forcing the header makes the commit durable
+		buffer.force();
+	}
+
+	/**
+	 * Return True if the journal holds at least as many records of discarded Samples as stored can
+	 * hold, given that stored holds the last Samples committed to the journal
+	 */
+	public boolean needsCompaction(Samples stored) {
+		return records - stored.size() >= stored.getCapacity();
+	}
+
+	/**
+	 * Replace the journal with one which holds only the Samples of stored. Uncommitted records are
+	 * discarded. The new journal is written to a separate file which replaces the journal when complete.
+	 */
+	public void compact(Samples stored) throws IOException {
+
+		File compacted = new File(file.getPath() + ".compact");
+		Files.deleteIfExists(compacted.toPath());
+		SampleJournal j = new SampleJournal(compacted);
+		try {
+			j.append(stored);
+			j.commit();
+		}
+		finally {
+			j.close();
+		}
+
+		//The journal is unmapped before it is replaced, since a mapped file cannot be replaced on every platform
+		close();
+		Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		open();
+	}
+
+	/**
+	 * Return the number of committed Samples, including Samples which are no longer stored
+	 */
+	public long getRecords() {return records;}
+
+	/**
+	 * Return the number of bytes of committed records and header
+	 */
+	public long getLength() {return end;}
+
+	public File getFile() {return file;}
+
+	@Override
+	public void close() throws IOException {
+		unmap(buffer);
+		buffer = null;
+		channel.close();
+	}
+
+	/**
+	 * Return the label code of label, writing a label record if it has none
+	 */
+	private int code(String label) throws IOException {
+		Integer c = codes.get(label);
+		if (c != null) return c;
+
+		byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+		reserve(8 + bytes.length);
+		buffer.putInt(position, LABEL);
+		buffer.putInt(position + 4, bytes.length);
+		buffer.position(position + 8);
+		buffer.put(bytes);
+		position += 8 + bytes.length;
+
+		c = labels.size();
+		labels.add(label);
+		codes.put(label, c);
+		return c;
+	}
+
+	/**
+	 * Read the label record at p, assigning its label the next label code, and return the offset past it
+	 */
+	private int readLabel(int p) throws IOException {
+		int length = buffer.getInt(p + 4);
+		if (length < 0 || p + 8L + length > end) throw corrupt(p);
+		byte[] bytes = new byte[length];
+		buffer.position(p + 8);
+		buffer.get(bytes);
+		String label = new String(bytes, StandardCharsets.UTF_8);
+		codes.put(label, labels.size());
+		labels.add(label);
+		return p + 8 + length;
+	}
+
+	private int sampleLength() {return 4 + 8 * numFeatures;}
+
+	/**
+	 * Map enough of the file to write n more bytes, at least doubling the mapping when it is too short.
+	 * The previous mapping is released once the new one is in place.
+	 */
+	private void reserve(int n) throws IOException {
+		long needed = (long) position + n;
+		if (needed <= buffer.capacity()) return;
+		long size = Math.max(needed, 2L * buffer.capacity());
+		if (needed > Integer.MAX_VALUE) throw new IOException("Journal " + file + " is too large.");
+		MappedByteBuffer old = buffer;
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(size, Integer.MAX_VALUE));
+		unmap(old);
+	}
+
+	/**
+	 * Release the mapping of b, which must not be used afterwards. Written pages stay in the file. Mappings
+	 * can only be released through internal JDK classes, by Unsafe.invokeCleaner from Java 9 and by the
+	 * cleaner of the buffer before, so if neither is available the mapping is left to the garbage collector.
+	 */
+	private static void unmap(MappedByteBuffer b) {
+		if (b == null) return;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field f = unsafeClass.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			invokeCleaner.invoke(f.get(null), b);
+			return;
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {}
+		try {
+			Method cleanerMethod = b.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(b);
+			if (cleaner != null) cleaner.getClass().getMethod("clean").invoke(cleaner);
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {}
+	}
+
+	private void writeHeader() {
+		buffer.putInt(NUM_FEATURES, numFeatures);
+		buffer.putLong(END, end);
+		buffer.putLong(RECORDS, records);
+	}
+
+	private IOException corrupt(int p) {
+		return new IOException("Journal " + file + " is corrupt at offset " + p + ".");
+	}
+
+}
@@ -0,0 +1,14 @@
+package learn;
+
+/**
+ *Receives rounds of Samples from any number of threads.
+ */
+public interface SampleSink {
+
+	/**
+	 * Add the Samples of round. round must not be modified afterwards. May block while earlier rounds
+	 * are still being added, so that producers cannot run arbitrarily far ahead of the sink.
+	 */
+	public void addRound(Samples round);
+
+}
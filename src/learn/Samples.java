@@ -1,103 +1,413 @@
 package learn;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import game.Action;
 
 import weka.core.Attribute;
 import weka.core.FastVector;
+import weka.core.Instance;
 import weka.core.Instances;
 
 /**
- * Stores Samples and converts them to an Instances object. When number of Samples exceeds
- * capacity, Samples that were added first are discarded first.
+ * Stores Samples and converts them to an Instances object. A RetentionPolicy decides which Samples
+ * are kept. By default, when number of Samples exceeds capacity, Samples that were added first are
+ * discarded first.
+ *
+ * Samples are stored in columns: one array of doubles for each feature and one array of int codes
+ * for labels, used as a ring buffer. Adding and discarding a Sample is O(1) and allocates nothing
+ * once the columns have grown to capacity, and a stored Sample costs only its feature values and one int.
+ * Each stored Sample occupies a slot of the columns. Stored Samples are in order of addition from the
+ * oldest slot onwards unless the RetentionPolicy replaces Samples other than the oldest.
  */
 public class Samples implements Iterable<Sample>{
 
 	/**
-	 * Samples are stored in a queue so that Samples can be easily removed from the head
+	 * Number of Samples the columns are allocated for before they first grow
+	 */
+	private static final int INITIAL_ALLOCATION = 1024;
+
+	/**
+	 * Feature k of the Sample at position p of the ring is columns[k][p]
+	 */
+	private double[][] columns;
+
+	/**
+	 * Code in labelNames of the label of the Sample at each position of the ring
+	 */
+	private int[] labels;
+
+	/**
+	 * Sequence number of the Sample at each position of the ring, which is the number of Samples added
+	 * before it
+	 */
+	private long[] sequences;
+
+	/**
+	 * Labels of all Samples ever added, in order of their codes
+	 */
+	private final List<String> labelNames = new ArrayList<String>();
+	private final Map<String,Integer> labelCodes = new HashMap<String,Integer>();
+
+	/**
+	 * Code of the label of each Action code, or -1 if the Action has not been added
+	 */
+	private final int[] actionCodes = new int[Action.COUNT];
+
+	/**
+	 * Position in the ring of the oldest Sample
 	 */
-	private Queue<Sample> samples = new ArrayDeque<Sample>();
-	
+	private int head = 0;
+
+	private int size = 0;
+
 	/**
-	 * Number of features in each Sample. Must be consistent.
+	 * Number of features in each Sample, or -1 if no Sample has been added. Must be consistent.
 	 */
-	private Integer numFeatures;
-	
+	private int numFeatures = -1;
+
 	private int capacity;
-	
+
+	/**
+	 * Number of Samples added since construction, including those that have been discarded
+	 */
+	private long added = 0;
+
+	/**
+	 * Decides where each new Sample is stored and which stored Sample it replaces
+	 */
+	private RetentionPolicy retention;
+
+	/**
+	 * Construct Samples which discards the oldest Sample when a Sample is added at capacity
+	 */
 	public Samples(int capacity) {
+		this(capacity, new FifoRetention());
+	}
+
+	public Samples(int capacity, RetentionPolicy retention) {
 		if (capacity <= 0) throw new IllegalArgumentException("Capacity must be greater than zero.");
 		this.capacity = capacity;
+		this.retention = retention;
+		retention.clear();
+		Arrays.fill(actionCodes, -1);
 	}
-	
+
 	public void addSample(Sample s) {
-		
+		addSample(s.features(), s.getLabel());
+	}
+
+	/**
+	 * Add a Sample with an array of features and a label. The features are copied.
+	 */
+	public void addSample(double[] features, String label) {
+		add(features, getLabelCode(label));
+	}
+
+	/**
+	 * Add a Sample with an array of features and the label of an Action code. The features are copied.
+	 * The label is looked up by code, so no String is made or hashed for the Sample.
+	 */
+	public void addSample(double[] features, int action) {
+		int c = actionCodes[action];
+		if (c < 0) {
+			c = getLabelCode(Action.label(action));
+			actionCodes[action] = c;
+		}
+		add(features, c);
+	}
+
+	/**
+	 * Add a Sample whose label has code label, as returned by getLabelCode(String). The features are
+	 * copied. The RetentionPolicy decides where the Sample is stored, or that it is discarded.
+	 */
+	void add(double[] features, int label) {
+
 		//Check that Sample's number of features is consistent with that of stored Samples
-		Integer sNumFeatures = s.getFeatures().length;
-		if (numFeatures == null) numFeatures = sNumFeatures;
-		if (!sNumFeatures.equals(numFeatures))
+		if (numFeatures < 0) allocate(features.length);
+		if (features.length != numFeatures)
 			throw new IllegalArgumentException("Number of features must be consistent for added Samples.");
-		
-		samples.add(s);
-		if (samples.size() > capacity) samples.remove();
+
+		int p = retention.place(this, features, label);
+		long sequence = added;
+		added += 1;
+		if (p == RetentionPolicy.DISCARD) return;
+
+		if (p == RetentionPolicy.APPEND) {
+			if (size == capacity) throw new IllegalStateException("RetentionPolicy appended a Sample to full Samples.");
+			if (size == labels.length) grow();
+
+			//The ring only wraps once it is full, so slots below capacity are in order
+			p = size;
+			size += 1;
+		}
+		else {
+			if (p < 0 || p >= size) throw new IllegalStateException("RetentionPolicy chose slot " + p + " of " + size + ".");
+			retention.removed(this, p);
+
+			//Replacing the oldest Sample of a full ring keeps the ring in order of addition
+			if (p == head && size == capacity) head = next(head);
+		}
+
+		for (int k=0; k<numFeatures; ++k) columns[k][p] = features[k];
+		labels[p] = label;
+		sequences[p] = sequence;
+		retention.stored(this, p);
 	}
-	
+
+	/**
+	 * Add every Sample of other, in the order other stores them
+	 */
+	public void addSamples(Samples other) {
+		if (other.isEmpty()) return;
+		if (numFeatures >= 0 && other.numFeatures != numFeatures)
+			throw new IllegalArgumentException("Number of features must be consistent for added Samples.");
+
+		//Translate codes of other's labels to codes of this Samples' labels
+		int[] codes = new int[other.labelNames.size()];
+		for (int c=0; c<codes.length; ++c) codes[c] = getLabelCode(other.labelNames.get(c));
+
+		double[] features = new double[other.numFeatures];
+		for (int i=0; i<other.size; ++i) {
+			int q = other.position(i);
+			for (int k=0; k<features.length; ++k) features[k] = other.columns[k][q];
+			add(features, codes[other.labels[q]]);
+		}
+	}
+
 	public void addSamples(Iterable<Sample> other) {
 		for (Sample s : other) {
 			addSample(s);
 		}
 	}
-	
+
 	public void clear() {
-		samples.clear();
-		numFeatures = null;
+		size = 0;
+		head = 0;
+		numFeatures = -1;
+		columns = null;
+		labels = null;
+		sequences = null;
+		retention.clear();
+	}
+
+	/**
+	 * Decide with retention which Samples are kept from now on. retention is told of every stored Sample.
+	 */
+	public void setRetentionPolicy(RetentionPolicy retention) {
+		retention.clear();
+		for (int i=0; i<size; ++i) retention.stored(this, position(i));
+		this.retention = retention;
 	}
-	
+
+	public RetentionPolicy getRetentionPolicy() {return retention;}
+
 	/**
 	 * Convert Samples into a Weka Instances object
 	 */
 	public Instances toInstances() {
-		
-		if (samples.isEmpty()) throw new IllegalStateException("This Samples object contains 0 Samples.");
-		
+
+		if (isEmpty()) throw new IllegalStateException("This Samples object contains 0 Samples.");
+
 		int n = numFeatures + 1;
 		FastVector attributes = new FastVector(n);
-		
+
 		//Add a numeric attribute for every feature
 		for (int k=0; k<numFeatures; ++k) {
 			attributes.addElement(new Attribute("Numeric " + Integer.toString(k)));
 		}
-		
-		//Add the final String attribute which can take the value of any Label of all Samples
-		List<String> labels = new ArrayList<String>();
-		for (Sample s: samples) {
-			if (!labels.contains(s.getLabel())) labels.add(s.getLabel());
+
+		//Add the final String attribute which can take the value of any Label of all Samples,
+		//in the order the labels first appear among stored Samples
+		int[] values = new int[labelNames.size()];
+		Arrays.fill(values, -1);
+		FastVector classValues = new FastVector();
+		for (int i=0; i<size; ++i) {
+			int c = labels[position(i)];
+			if (values[c] < 0) {
+				values[c] = classValues.size();
+				classValues.addElement(labelNames.get(c));
+			}
 		}
-		FastVector classValues = new FastVector(labels.size());
-		for (String v: labels) classValues.addElement(v);
 		Attribute classes = new Attribute("class", classValues);
 		attributes.addElement(classes);
-		
+
 		//create Instaces with last attribute as class index
-		Instances instances = new Instances("", attributes, 0);
+		BulkInstances instances = new BulkInstances(attributes, size);
 		instances.setClassIndex(numFeatures);
-		
+
 		//Convert each Sample to a Weka Instance and add to instances
-		for (Sample s: samples) instances.add(s.toInstance(classes));
-		
+		for (int i=0; i<size; ++i) {
+			int p = position(i);
+			double[] v = new double[n];
+			for (int k=0; k<numFeatures; ++k) v[k] = columns[k][p];
+			v[numFeatures] = values[labels[p]];
+			instances.addWithoutCopy(new Instance(1, v));
+		}
+
 		return instances;
 	}
-	
-	public int size() {return samples.size();}
-	
-	public boolean isEmpty() {return samples.isEmpty();}
 
+	public int size() {return size;}
+
+	/**
+	 * Return the number of Samples added since construction, including those which the RetentionPolicy
+	 * discarded or which were later replaced. Which of these are stored depends on the RetentionPolicy,
+	 * and getSequenceAt() tells which Sample each slot holds.
+	 */
+	public long getAdded() {return added;}
+
+	public boolean isEmpty() {return size == 0;}
+
+	public boolean isFull() {return size == capacity;}
+
+	public int getCapacity() {return capacity;}
+
+	/**
+	 * Return the number of features of each stored Sample, or -1 if no Sample is stored
+	 */
+	public int getNumFeatures() {return numFeatures;}
+
+	/**
+	 * Return feature k of the i-th stored Sample
+	 */
+	double getFeature(int i, int k) {return columns[k][position(i)];}
+
+	/**
+	 * Return the code of the label of the i-th stored Sample
+	 */
+	int getLabelCode(int i) {return labels[position(i)];}
+
+	/**
+	 * Return the slot of the i-th stored Sample. Slots from 0 to size() - 1 are all occupied.
+	 */
+	int slot(int i) {return position(i);}
+
+	/**
+	 * Return the column of feature k, indexed by slot. The column may be longer than size().
+	 */
+	double[] column(int k) {return columns[k];}
+
+	/**
+	 * Return feature k of the Sample stored in slot
+	 */
+	public double getFeatureAt(int slot, int k) {return columns[k][slot];}
+
+	/**
+	 * Return the code of the label of the Sample stored in slot
+	 */
+	public int getLabelAt(int slot) {return labels[slot];}
+
+	/**
+	 * Return the sequence number of the Sample stored in slot, which is the value getAdded() had when
+	 * it was added
+	 */
+	public long getSequenceAt(int slot) {return sequences[slot];}
+
+	/**
+	 * Return the slot of the oldest stored Sample, which is replaced first when Samples are discarded in
+	 * order of addition
+	 */
+	public int getOldestSlot() {return head;}
+
+	/**
+	 * Return the label with code c. Codes are assigned to labels in the order they are first added.
+	 */
+	public String getLabelName(int c) {return labelNames.get(c);}
+
+	/**
+	 * Return the number of label codes which have been assigned
+	 */
+	public int numLabelCodes() {return labelNames.size();}
+
+	/**
+	 * Iterates over copies of the stored Samples, from the oldest slot onwards
+	 */
 	@Override
 	public Iterator<Sample> iterator() {
-		return samples.iterator();
+		return new Iterator<Sample>() {
+
+			private int i = 0;
+
+			@Override
+			public boolean hasNext() {return i < size;}
+
+			@Override
+			public Sample next() {
+				if (i >= size) throw new NoSuchElementException();
+				int p = position(i++);
+				double[] features = new double[numFeatures];
+				for (int k=0; k<numFeatures; ++k) features[k] = columns[k][p];
+				return new Sample(features, labelNames.get(labels[p]));
+			}
+
+			@Override
+			public void remove() {throw new UnsupportedOperationException();}
+		};
+	}
+
+	/**
+	 * Return the code of label, assigning it a new code if it has none
+	 */
+	public int getLabelCode(String label) {
+		Integer c = labelCodes.get(label);
+		if (c == null) {
+			c = labelNames.size();
+			labelNames.add(label);
+			labelCodes.put(label, c);
+		}
+		return c;
+	}
+
+	/**
+	 * Return the position in the ring of the i-th oldest Sample
+	 */
+	private int position(int i) {
+		int p = head + i;
+		return p < capacity ? p : p - capacity;
+	}
+
+	private int next(int p) {return p + 1 < capacity ? p + 1 : 0;}
+
+	private void allocate(int numFeatures) {
+		this.numFeatures = numFeatures;
+		int n = Math.min(capacity, INITIAL_ALLOCATION);
+		columns = new double[numFeatures][n];
+		labels = new int[n];
+		sequences = new long[n];
+	}
+
+	/**
+	 * Double the length of the columns, up to capacity
+	 */
+	private void grow() {
+		int n = (int) Math.min(capacity, 2L * labels.length);
+		for (int k=0; k<numFeatures; ++k) columns[k] = Arrays.copyOf(columns[k], n);
+		labels = Arrays.copyOf(labels, n);
+		sequences = Arrays.copyOf(sequences, n);
+	}
+
+	/**
+	 * Instances which can take ownership of an Instance instead of adding a copy of it
+	 */
+	private static class BulkInstances extends Instances {
+
+		private static final long serialVersionUID = 1L;
+
+		BulkInstances(FastVector attributes, int capacity) {
+			super("", attributes, capacity);
+		}
+
+		void addWithoutCopy(Instance i) {
+			i.setDataset(this);
+			m_Instances.addElement(i);
+		}
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,148 @@
+package learn;
+
+import java.util.Arrays;
+
+import game.Action;
+
+/**
+ *Decides which ticks of a round a JetTrainer records as Samples, so that the training set is not dominated
+ *by runs of near identical frames and features are not generated for ticks which would not be kept.
+ *
+ *A tick is offered once its label is known and before its features are generated. Ticks without an action
+ *can be skipped outright. Otherwise a tick is recorded when its label differs from the last recorded label,
+ *if label changes are recorded, and when stride ticks have passed since the last tick whose features were
+ *generated. Features of a tick recorded because of the stride are then compared with those of the last
+ *recorded Sample, and the tick is skipped if its label is unchanged and no feature differs by at least
+ *minDelta. Missing features only match missing features.
+ *
+ *The default SamplingPolicy records every tick. Counts of offered and recorded ticks are kept so that
+ *the settings can be tuned against the size of the training set. A SamplingPolicy keeps state about the
+ *ticks of the current round, so it must only be used by one JetTrainer, from one thread at a time.
+ */
+public class SamplingPolicy {
+
+	private final int stride;
+	private final boolean onLabelChange;
+	private final boolean skipNoAction;
+	private final double minDelta;
+
+	/**
+	 * Action and features of the last recorded Sample of the round, or NONE if none has been recorded
+	 */
+	private static final int NONE = -1;
+	private int lastAction = NONE;
+	private double[] lastFeatures = new double[0];
+
+	/**
+	 * Number of ticks since features were last generated
+	 */
+	private int sinceGenerated = 0;
+
+	/**
+	 * True if the offered tick was taken because its action changed, so its features are not compared
+	 */
+	private boolean changed;
+
+	private long offered = 0, generated = 0, recorded = 0;
+
+	/**
+	 * Construct SamplingPolicy which records every tick
+	 */
+	public SamplingPolicy() {
+		this(1, false, false, 0);
+	}
+
+	/**
+	 * Construct SamplingPolicy which generates features at most once every stride ticks, and also on every
+	 * change of label if onLabelChange is True, skips ticks without an action if skipNoAction is True, and
+	 * skips ticks whose features all differ by less than minDelta from those of the last recorded Sample
+	 * with the same label.
+	 */
+	public SamplingPolicy(int stride, boolean onLabelChange, boolean skipNoAction, double minDelta) {
+		if (stride <= 0) throw new IllegalArgumentException("'stride' must be greater than zero.");
+		if (!(minDelta >= 0)) throw new IllegalArgumentException("'minDelta' must not be negative.");
+		this.stride = stride;
+		this.onLabelChange = onLabelChange;
+		this.skipNoAction = skipNoAction;
+		this.minDelta = minDelta;
+	}
+
+	/**
+	 * Return True if features should be generated for a tick with Action code action
+	 */
+	boolean offer(int action) {
+		offered += 1;
+		sinceGenerated += 1;
+		if (skipNoAction && action == Action.IDLE) return false;
+
+		changed = lastAction == NONE || (onLabelChange && action != lastAction);
+		if (!changed && sinceGenerated < stride) return false;
+		sinceGenerated = 0;
+		generated += 1;
+		return true;
+	}
+
+	/**
+	 * Return True if the offered tick with features and action should be recorded, and remember it if so
+	 */
+	boolean accept(double[] features, int action) {
+		if (!changed && minDelta > 0 && action == lastAction && !differs(features)) return false;
+
+		if (lastFeatures.length != features.length) lastFeatures = new double[features.length];
+		System.arraycopy(features, 0, lastFeatures, 0, features.length);
+		lastAction = action;
+		recorded += 1;
+		return true;
+	}
+
+	/**
+	 * Return True if any of features differs by at least minDelta from the last recorded features
+	 */
+	private boolean differs(double[] features) {
+		if (features.length != lastFeatures.length) return true;
+		for (int i=0; i<features.length; ++i) {
+			boolean missing = Double.isNaN(features[i]);
+			if (missing != Double.isNaN(lastFeatures[i])) return true;
+			if (!missing && Math.abs(features[i] - lastFeatures[i]) >= minDelta) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Forget the ticks of the current round. Called when a round ends.
+	 */
+	void endRound() {
+		lastAction = NONE;
+		Arrays.fill(lastFeatures, Double.NaN);
+		sinceGenerated = 0;
+	}
+
+	public int getStride() {return stride;}
+	public boolean isOnLabelChange() {return onLabelChange;}
+	public boolean isSkipNoAction() {return skipNoAction;}
+	public double getMinDelta() {return minDelta;}
+
+	/**
+	 * Return the number of ticks offered, which is every tick of every round
+	 */
+	public long getOffered() {return offered;}
+
+	/**
+	 * Return the number of ticks whose features were generated
+	 */
+	public long getGenerated() {return generated;}
+
+	/**
+	 * Return the number of ticks recorded as Samples
+	 */
+	public long getRecorded() {return recorded;}
+
+	@Override
+	public String toString() {
+		return "Sampling every " + Integer.toString(stride) + " ticks" + (onLabelChange ? " and on label changes" : "")
+				+ (skipNoAction ? ", skipping ticks without action" : "")
+				+ (minDelta > 0 ? ", minimum delta " + Double.toString(minDelta) : "")
+				+ ": recorded " + Long.toString(recorded) + " of " + Long.toString(offered) + " ticks.";
+	}
+
+}
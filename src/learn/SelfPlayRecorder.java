@@ -0,0 +1,59 @@
+package learn;
+
+import game.SampleRecorder;
+
+/**
+ *Records the Samples of one arena and sends the Samples of every round the user Jet wins to a shared
+ *SampleSink. Each arena needs its own SelfPlayRecorder, since FeatureGenerators are not thread-safe.
+ */
+public class SelfPlayRecorder implements SampleRecorder {
+
+	private final FeatureGenerator fg;
+
+	/**
+	 * Features of the latest Sample
+	 */
+	private final double[] features;
+
+	private final SampleSink sink;
+
+	/**
+	 * Maximum number of Samples of one round, beyond which the oldest are discarded
+	 */
+	private final int roundCapacity;
+
+	private Samples round;
+
+	/**
+	 * Number of Samples sent to sink
+	 */
+	private long sent = 0;
+
+	public SelfPlayRecorder(FeatureGenerator fg, SampleSink sink, int roundCapacity) {
+		this.fg = fg;
+		this.sink = sink;
+		this.roundCapacity = roundCapacity;
+		features = new double[fg.getNumFeatures()];
+		round = new Samples(roundCapacity);
+	}
+
+	@Override
+	public void addSample(WorldSnapshot world, int index, int action) {
+		fg.generate(world, index, features, 0);
+		round.addSample(features, action);
+	}
+
+	@Override
+	public void endRound(boolean keep) {
+		if (!keep || round.isEmpty()) {
+			round.clear();
+			return;
+		}
+		sent += round.size();
+		sink.addRound(round);
+		round = new Samples(roundCapacity);
+	}
+
+	public long getSent() {return sent;}
+
+}
@@ -0,0 +1,118 @@
+package learn;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *Keeps the labels of stored Samples balanced. A label with maxPerLabel stored Samples replaces its own
+ *oldest Sample, and when Samples is full a new Sample replaces the oldest Sample of the label with the
+ *most stored Samples. Rare actions are therefore not crowded out of the training set by common ones.
+ */
+public class StratifiedRetention implements RetentionPolicy {
+
+	private final int maxPerLabel;
+
+	/**
+	 * Slots of the stored Samples of each label code, oldest first
+	 */
+	private final List<SlotQueue> slots = new ArrayList<SlotQueue>();
+
+	/**
+	 * Construct StratifiedRetention which limits labels only by the capacity of Samples
+	 */
+	public StratifiedRetention() {
+		this(Integer.MAX_VALUE);
+	}
+
+	public StratifiedRetention(int maxPerLabel) {
+		if (maxPerLabel <= 0) throw new IllegalArgumentException("Maximum per label must be greater than zero.");
+		this.maxPerLabel = maxPerLabel;
+	}
+
+	@Override
+	public int place(Samples samples, double[] features, int label) {
+
+		SlotQueue own = queue(label);
+		if (own.size() >= maxPerLabel) return own.peek();
+		if (!samples.isFull()) return APPEND;
+
+		//Replace the oldest Sample of the largest label
+		SlotQueue largest = own;
+		for (SlotQueue q: slots) {
+			if (q.size() > largest.size()) largest = q;
+		}
+		return largest.peek();
+	}
+
+	@Override
+	public void stored(Samples samples, int slot) {
+		queue(samples.getLabelAt(slot)).add(slot);
+	}
+
+	@Override
+	public void removed(Samples samples, int slot) {
+		queue(samples.getLabelAt(slot)).remove(slot);
+	}
+
+	@Override
+	public void clear() {
+		slots.clear();
+	}
+
+	/**
+	 * Return the number of stored Samples with label code label
+	 */
+	public int count(int label) {
+		return label < slots.size() ? slots.get(label).size() : 0;
+	}
+
+	private SlotQueue queue(int label) {
+		while (slots.size() <= label) slots.add(new SlotQueue());
+		return slots.get(label);
+	}
+
+	/**
+	 * A growable ring of slots
+	 */
+	private static class SlotQueue {
+
+		private int[] slots = new int[16];
+		private int head = 0;
+		private int size = 0;
+
+		void add(int slot) {
+			if (size == slots.length) {
+				int[] grown = new int[2 * slots.length];
+				for (int i=0; i<size; ++i) grown[i] = get(i);
+				slots = grown;
+				head = 0;
+			}
+			slots[(head + size) % slots.length] = slot;
+			size += 1;
+		}
+
+		int peek() {return slots[head];}
+
+		/**
+		 * Remove slot, which is usually the oldest
+		 */
+		void remove(int slot) {
+			if (size > 0 && slots[head] == slot) {
+				head = (head + 1) % slots.length;
+				size -= 1;
+				return;
+			}
+			for (int i=1; i<size; ++i) {
+				if (get(i) != slot) continue;
+				for (int j=i; j<size-1; ++j) slots[(head + j) % slots.length] = get(j + 1);
+				size -= 1;
+				return;
+			}
+		}
+
+		int size() {return size;}
+
+		private int get(int i) {return slots[(head + i) % slots.length];}
+	}
+
+}
@@ -0,0 +1,137 @@
+package learn;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import game.Action;
+
+import weka.classifiers.Classifier;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ *A trained Weka Classifier together with the header of the Instances it was trained on. Both are written
+ *to a ModelSnapshot with Java serialization.
+ */
+class WekaModel implements Model {
+
+	private final Classifier classifier;
+
+	/**
+	 * Instances with the attributes of the training set and no Instance
+	 */
+	private final Instances header;
+
+	/**
+	 * Action code of each class value of the header
+	 */
+	private final int[] actions;
+
+	WekaModel(Classifier classifier, Instances header) {
+		this.classifier = classifier;
+		this.header = header;
+		actions = new int[header.numClasses()];
+		for (int k=0; k<actions.length; ++k) actions[k] = Action.parse(header.classAttribute().value(k));
+	}
+
+	@Override
+	public int classify(double[] features) throws Exception {
+		return classify(toInstance(features));
+	}
+
+	@Override
+	public void classify(double[][] features, int n, int[] actions) throws Exception {
+		FeatureInstance i = new FeatureInstance(header);
+		for (int k=0; k<n; ++k) {
+			i.setFeatures(features[k]);
+			actions[k] = classify(i);
+		}
+	}
+
+	private int classify(Instance i) throws Exception {
+		return actions[(int) classifier.classifyInstance(i)];
+	}
+
+	/**
+	 * Return the probability of each class value of the header for an array of features
+	 */
+	double[] distribution(double[] features) throws Exception {
+		return distribution(toInstance(features));
+	}
+
+	/**
+	 * Return the probability of each class value of the header for an Instance with the attributes
+	 * of the header
+	 */
+	double[] distribution(Instance i) throws Exception {
+		return classifier.distributionForInstance(i);
+	}
+
+	/**
+	 * Convert features array to Instance for use with Weka
+	 */
+	private Instance toInstance(double[] features) {
+		FeatureInstance i = new FeatureInstance(header);
+		i.setFeatures(features);
+		return i;
+	}
+
+	/**
+	 * Write the Classifier and header to out, as the length of their serialized form followed by it
+	 */
+	void write(DataOutputStream out) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream o = new ObjectOutputStream(bytes);
+		o.writeObject(classifier);
+		o.writeObject(header);
+		o.close();
+		out.writeInt(bytes.size());
+		bytes.writeTo(out);
+	}
+
+	/**
+	 * Read a WekaModel written by write() from in. Throws IOException if in does not hold a Classifier
+	 * and a header of numFeatures numeric attributes followed by a nominal class of Action labels.
+	 */
+	static WekaModel read(DataInputStream in, int numFeatures) throws IOException {
+
+		int length = in.readInt();
+		if (length < 0) throw new IOException("Model snapshot has a negative count.");
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+
+		Object classifier, header;
+		ObjectInputStream o = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		try {
+			classifier = o.readObject();
+			header = o.readObject();
+		}
+		catch (ClassNotFoundException e) {
+			throw new IOException("Model snapshot holds an unknown class: " + e.getMessage());
+		}
+		finally {
+			o.close();
+		}
+
+		if (!(classifier instanceof Classifier) || !(header instanceof Instances))
+			throw new IOException("Model snapshot does not hold a Weka classifier.");
+		Instances h = (Instances) header;
+		if (h.numAttributes() != numFeatures + 1 || h.classIndex() != numFeatures || !h.classAttribute().isNominal())
+			throw new IOException("Model snapshot has a header which does not match the features.");
+		try {
+			return new WekaModel((Classifier) classifier, h);
+		}
+		catch (NumberFormatException e) {
+			throw new IOException("Model snapshot has an invalid label.");
+		}
+	}
+
+	Classifier getClassifier() {return classifier;}
+	Instances getHeader() {return header;}
+
+}
@@ -0,0 +1,290 @@
+package learn;
+
+import java.util.Arrays;
+import java.util.List;
+
+import jet.Geometry;
+import jet.Jet;
+import jet.ProjectilePool;
+import jet.SpatialGrid;
+
+/**
+ *Copy of the positions of all Jets and Projectiles of a game state, built once by build() and then
+ *shared by every FeatureGenerator and every Jet that features are generated for, so that each of them
+ *does not scan the game state again. A snapshot is never changed between builds.
+ *
+ *Besides positions, a snapshot provides the polar coordinates of Jets and Projectiles about the origin,
+ *the positions of the enemy Projectiles of each team, and a SpatialGrid of Projectiles. Each of these
+ *is derived on first use after a build and then kept until the next build, so generators only pay for
+ *what some generator uses. The grid grows to cover the Projectiles it is built from, so a snapshot
+ *needs no dimensions of the arena. Arrays are reused between builds, so a WorldSnapshot must only be used by one
+ *thread at a time, and arrays returned by it must not be modified.
+ */
+public class WorldSnapshot {
+
+	/**
+	 * Cell size of the Projectile grid when none is given, within which nearby Projectiles are found,
+	 * which is four radii of the Jets of the game
+	 */
+	public static final double DEFAULT_CELL_SIZE = 40;
+
+	/**
+	 * Number of builds, which stamps the derived values computed since the last build
+	 */
+	private int build = 0;
+
+	private int numJets = 0;
+	private double[] jetX = new double[0], jetY = new double[0];
+	private int[] jetTeam = new int[0];
+	private boolean[] dead = new boolean[0];
+
+	/**
+	 * Distance of each Jet from the origin and angle of its path to the origin
+	 */
+	private double[] jetDistance = new double[0], jetAngle = new double[0];
+	private int jetPolarBuild = -1;
+
+	private int numProjectiles = 0;
+	private double[] projectileX = new double[0], projectileY = new double[0];
+	private double[] projectileXVel = new double[0], projectileYVel = new double[0];
+	private int[] projectileTeam = new int[0];
+
+	/**
+	 * Distance of each Projectile from the origin and angle of its position about the origin
+	 */
+	private double[] projectileDistance = new double[0], projectileAngle = new double[0];
+	private int projectilePolarBuild = -1;
+
+	/**
+	 * Positions of the Projectiles which were not fired by each team, in ascending order of their
+	 * indices, and the build they were gathered for
+	 */
+	private double[][] enemyX = new double[0][], enemyY = new double[0][];
+	private int[] numEnemies = new int[0];
+	private int[] enemyBuild = new int[0];
+
+	/**
+	 * Grid of Projectiles, created on first use, and the half width it covers
+	 */
+	private SpatialGrid grid;
+	private double gridHalfWidth = 0;
+	private final double cellSize;
+	private int gridBuild = -1;
+
+	/**
+	 * Construct empty WorldSnapshot whose Projectile grid has cells of DEFAULT_CELL_SIZE
+	 */
+	public WorldSnapshot() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * Construct empty WorldSnapshot whose Projectile grid has cells of cellSize
+	 */
+	public WorldSnapshot(double cellSize) {
+		if (!(cellSize > 0)) throw new IllegalArgumentException("'cellSize' must be greater than zero.");
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Copy the game state of jets and of the Projectiles of their ProjectilePool, replacing the previous state
+	 */
+	public void build(List<Jet> jets) {
+
+		build += 1;
+		numJets = jets.size();
+		if (jetX.length < numJets) {
+			int c = Math.max(numJets, 2 * jetX.length);
+			jetX = new double[c];
+			jetY = new double[c];
+			jetTeam = new int[c];
+			dead = new boolean[c];
+			jetDistance = new double[c];
+			jetAngle = new double[c];
+		}
+		int numTeams = 0;
+		for (int i=0; i<numJets; ++i) {
+			Jet j = jets.get(i);
+			jetX[i] = j.getX();
+			jetY[i] = j.getY();
+			jetTeam[i] = j.getTeam();
+			dead[i] = j.isDead();
+			numTeams = Math.max(numTeams, j.getTeam() + 1);
+		}
+
+		ProjectilePool pool = numJets == 0 ? null : jets.get(0).getProjectilePool();
+		numProjectiles = pool == null ? 0 : pool.size();
+		if (projectileX.length < numProjectiles) {
+			int c = Math.max(numProjectiles, 2 * projectileX.length);
+			projectileX = new double[c];
+			projectileY = new double[c];
+			projectileXVel = new double[c];
+			projectileYVel = new double[c];
+			projectileTeam = new int[c];
+			projectileDistance = new double[c];
+			projectileAngle = new double[c];
+		}
+		for (int i=0; i<numProjectiles; ++i) {
+			projectileX[i] = pool.getX(i);
+			projectileY[i] = pool.getY(i);
+			projectileXVel[i] = pool.getXVel(i);
+			projectileYVel[i] = pool.getYVel(i);
+			projectileTeam[i] = pool.getTeam(i);
+			numTeams = Math.max(numTeams, pool.getTeam(i) + 1);
+		}
+
+		if (numEnemies.length < numTeams) {
+			int t = enemyX.length;
+			enemyX = Arrays.copyOf(enemyX, numTeams);
+			enemyY = Arrays.copyOf(enemyY, numTeams);
+			numEnemies = Arrays.copyOf(numEnemies, numTeams);
+			enemyBuild = Arrays.copyOf(enemyBuild, numTeams);
+			for (; t<numTeams; ++t) {
+				enemyX[t] = new double[64];
+				enemyY[t] = new double[64];
+				enemyBuild[t] = -1;
+			}
+		}
+	}
+
+	public int getNumJets() {return numJets;}
+	public double getJetX(int i) {return jetX[i];}
+	public double getJetY(int i) {return jetY[i];}
+	public int getJetTeam(int i) {return jetTeam[i];}
+	public boolean isDead(int i) {return dead[i];}
+
+	/**
+	 * Return the distance of Jet i from the origin
+	 */
+	public double getJetDistance(int i) {
+		jetPolar();
+		return jetDistance[i];
+	}
+
+	/**
+	 * Return the angle of the path from Jet i to the origin
+	 */
+	public double getJetAngle(int i) {
+		jetPolar();
+		return jetAngle[i];
+	}
+
+	/**
+	 * Compute the polar coordinates of Jets if they have not been computed since the last build. They are
+	 * computed as a Jet computes them, so features do not depend on whether a snapshot is used.
+	 */
+	private void jetPolar() {
+		if (jetPolarBuild == build) return;
+		for (int i=0; i<numJets; ++i) {
+			
+			//Subtracting from 0 rather than negating keeps the sign of zero that atan2 depends on
+			double xDiff = 0 - jetX[i];
+			double yDiff = 0 - jetY[i];
+			jetDistance[i] = Math.sqrt(xDiff * xDiff + yDiff * yDiff);
+			jetAngle[i] = Math.atan2(yDiff, xDiff);
+		}
+		jetPolarBuild = build;
+	}
+
+	public int getNumProjectiles() {return numProjectiles;}
+
+	/**
+	 * Return the horizontal positions of the Projectiles, of which the first getNumProjectiles() are used
+	 */
+	public double[] getProjectileX() {return projectileX;}
+	public double[] getProjectileY() {return projectileY;}
+	public double[] getProjectileXVel() {return projectileXVel;}
+	public double[] getProjectileYVel() {return projectileYVel;}
+	public int[] getProjectileTeam() {return projectileTeam;}
+
+	/**
+	 * Return the distances of the Projectiles from the origin
+	 */
+	public double[] getProjectileDistance() {
+		projectilePolar();
+		return projectileDistance;
+	}
+
+	/**
+	 * Return the angles of the positions of the Projectiles about the origin
+	 */
+	public double[] getProjectileAngle() {
+		projectilePolar();
+		return projectileAngle;
+	}
+
+	private void projectilePolar() {
+		if (projectilePolarBuild == build) return;
+		Geometry.squaredNorms(projectileX, projectileY, numProjectiles, projectileDistance);
+		Geometry.roots(projectileDistance, numProjectiles, projectileDistance);
+		for (int i=0; i<numProjectiles; ++i) projectileAngle[i] = Math.atan2(projectileY[i], projectileX[i]);
+		projectilePolarBuild = build;
+	}
+
+	/**
+	 * Return the number of Projectiles which were not fired by a Jet on team
+	 */
+	public int getNumEnemies(int team) {
+		gatherEnemies(team);
+		return numEnemies[team];
+	}
+
+	/**
+	 * Return the horizontal positions of the Projectiles which were not fired by a Jet on team, in ascending
+	 * order of their indices, of which the first getNumEnemies(team) are used
+	 */
+	public double[] getEnemyX(int team) {
+		gatherEnemies(team);
+		return enemyX[team];
+	}
+
+	public double[] getEnemyY(int team) {
+		gatherEnemies(team);
+		return enemyY[team];
+	}
+
+	/**
+	 * Gather the enemy Projectiles of team if they have not been gathered since the last build
+	 */
+	private void gatherEnemies(int team) {
+		if (enemyBuild[team] == build) return;
+		if (enemyX[team].length < numProjectiles) {
+			enemyX[team] = new double[Math.max(numProjectiles, 2 * enemyX[team].length)];
+			enemyY[team] = new double[enemyX[team].length];
+		}
+		double[] xs = enemyX[team], ys = enemyY[team];
+		int n = 0;
+		for (int i=0; i<numProjectiles; ++i) {
+			if (projectileTeam[i] == team) continue;
+			xs[n] = projectileX[i];
+			ys[n] = projectileY[i];
+			n += 1;
+		}
+		numEnemies[team] = n;
+		enemyBuild[team] = build;
+	}
+
+	/**
+	 * Return a SpatialGrid of all Projectiles by index, whose near() finds every Projectile within
+	 * getCellSize() of a point
+	 */
+	public SpatialGrid getProjectileGrid() {
+		if (gridBuild != build) {
+			
+			//A grid finds the same Projectiles whatever it covers, since positions beyond it are clamped
+			//to its border, so it is only replaced, at least doubling, when Projectiles leave it
+			double extent = cellSize;
+			for (int i=0; i<numProjectiles; ++i) extent = Math.max(extent, Math.max(Math.abs(projectileX[i]), Math.abs(projectileY[i])));
+			if (grid == null || extent > gridHalfWidth) {
+				gridHalfWidth = Math.max(extent, 2 * gridHalfWidth);
+				grid = new SpatialGrid(gridHalfWidth, cellSize);
+			}
+			grid.build(projectileX, projectileY, numProjectiles);
+			gridBuild = build;
+		}
+		return grid;
+	}
+
+	public double getCellSize() {return cellSize;}
+
+}
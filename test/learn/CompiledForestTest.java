@@ -0,0 +1,100 @@
+package learn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import game.Action;
+
+import weka.classifiers.trees.RandomForest;
+import weka.core.Instances;
+
+/**
+ *Checks that a compiled RandomForest produces exactly the distributions and predictions of the Weka
+ *RandomForest it was compiled from, including for features which are missing. CompiledForest reads
+ *private fields of Weka classes, so these tests also detect a change of Weka which it does not support.
+ */
+public class CompiledForestTest {
+
+	private static final String[] LABELS = {"0.0", "0.7853981633974483", "1.5707963267948966", "3.141592653589793", "NaN"};
+
+	private static final int NUM_FEATURES = 7;
+
+	private static Samples train, test;
+
+	@BeforeClass
+	public static void generate() {
+		train = samples(new Random(1), 3000);
+		test = samples(new Random(2), 1000);
+	}
+
+	@Test
+	public void matchesRandomForest() throws Exception {
+		RandomForest forest = new RandomForest();
+		forest.setNumTrees(10);
+		forest.setSeed(1);
+		check(forest);
+	}
+
+	@Test
+	public void matchesDepthLimitedRandomForest() throws Exception {
+		RandomForest forest = new RandomForest();
+		forest.setNumTrees(10);
+		forest.setMaxDepth(4);
+		forest.setSeed(2);
+		check(forest);
+	}
+
+	/**
+	 * Return n Samples whose features are each missing with probability 0.1, labelled by thresholds on
+	 * their first features with some noise, so that trees grow several levels deep
+	 */
+	private static Samples samples(Random random, int n) {
+		Samples samples = new Samples(n);
+		for (int i=0; i<n; ++i) {
+			double[] features = new double[NUM_FEATURES];
+			for (int k=0; k<NUM_FEATURES; ++k) features[k] = random.nextDouble() < 0.1 ? Double.NaN : 100 * random.nextDouble();
+			int label = (features[0] < 50 ? 1 : 0) + (features[1] < 30 ? 2 : 0) + (features[2] < 70 ? 1 : 0);
+			if (random.nextDouble() < 0.1) label = random.nextInt(LABELS.length);
+			samples.addSample(new Sample(features, LABELS[label]));
+		}
+		return samples;
+	}
+
+	/**
+	 * Train forest on the training Samples and compare it with its CompiledForest on every test Sample,
+	 * as generated and with another random feature missing
+	 */
+	private void check(RandomForest forest) throws Exception {
+
+		Instances instances = train.toInstances();
+		forest.buildClassifier(instances);
+		Instances header = new Instances(instances, 0);
+		CompiledForest compiled = CompiledForest.compile(forest, header);
+		assertTrue("Forest has too few nodes.", compiled.numNodes() > 10 * compiled.numTrees());
+
+		Random random = new Random(3);
+		FeatureInstance instance = new FeatureInstance(header);
+		for (Sample s: test) {
+			double[] features = s.getFeatures();
+			compare(forest, compiled, header, instance, features);
+
+			features[random.nextInt(features.length)] = Double.NaN;
+			compare(forest, compiled, header, instance, features);
+		}
+	}
+
+	private void compare(RandomForest forest, CompiledForest compiled, Instances header, FeatureInstance instance,
+			double[] features) throws Exception {
+		instance.setFeatures(features);
+		assertArrayEquals(forest.distributionForInstance(instance), compiled.distribution(features), 0);
+		String label = header.classAttribute().value((int) forest.classifyInstance(instance));
+		assertEquals(Action.parse(label), compiled.classify(features));
+	}
+
+}
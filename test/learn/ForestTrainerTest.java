@@ -0,0 +1,82 @@
+package learn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *Checks that ForestTrainer grows the same forest from the same seed whatever the number of threads, and
+ *that the forest depends on the seed. Forests are compared by their distributions for random features,
+ *some of them missing.
+ */
+public class ForestTrainerTest {
+
+	private static final String[] LABELS = {"0.0", "0.7853981633974483", "1.5707963267948966", "NaN"};
+
+	private static Samples samples;
+	private static double[][] probes;
+
+	@BeforeClass
+	public static void generate() {
+		Random random = new Random(1);
+		samples = new Samples(3000);
+		for (int i=0; i<samples.getCapacity(); ++i) {
+			double[] features = features(random);
+			int label = (features[0] < 50 ? 1 : 0) + (features[3] < 20 ? 2 : 0);
+			if (random.nextInt(10) == 0) label = random.nextInt(LABELS.length);
+			samples.addSample(features, LABELS[label]);
+		}
+		probes = new double[500][];
+		for (int i=0; i<probes.length; ++i) probes[i] = features(random);
+	}
+
+	@Test
+	public void sameForestOnAnyNumberOfThreads() {
+		double[][] expected = distributions(grow(1, 7));
+		for (int threads: new int[] {2, 3, 8}) assertArrayEquals(expected, distributions(grow(threads, 7)));
+	}
+
+	@Test
+	public void sameForestOnEveryTraining() {
+		ForestTrainer ft = new ForestTrainer(20, 4);
+		assertArrayEquals(distributions(ft.train(samples, 7)), distributions(ft.train(samples, 7)));
+	}
+
+	@Test
+	public void forestDependsOnSeed() {
+		assertFalse(Arrays.deepEquals(distributions(grow(4, 7)), distributions(grow(4, 8))));
+	}
+
+	/**
+	 * Return seven random features, each missing with probability 0.1
+	 */
+	private static double[] features(Random random) {
+		double[] features = new double[7];
+		for (int k=0; k<features.length; ++k) features[k] = random.nextInt(10) == 0 ? Double.NaN : 100 * random.nextDouble();
+		return features;
+	}
+
+	/**
+	 * Return a forest of 20 trees grown on threads threads from seed
+	 */
+	private static CompiledForest grow(int threads, long seed) {
+		ForestTrainer ft = new ForestTrainer(20, threads);
+		ft.setSeed(seed);
+		return ft.train(samples);
+	}
+
+	/**
+	 * Return the distributions of forest for every probe
+	 */
+	private static double[][] distributions(CompiledForest forest) {
+		double[][] d = new double[probes.length][];
+		for (int i=0; i<probes.length; ++i) d[i] = forest.distribution(probes[i]);
+		return d;
+	}
+
+}
@@ -0,0 +1,186 @@
+package learn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import game.Angle;
+
+import jet.Jet;
+import jet.ProjectilePool;
+
+/**
+ *Checks that MyFeatureGenerator generates exactly the features of the original implementation, which
+ *sorted all enemy Projectiles by distance through a HashMap, on random worlds. Worlds include Projectiles
+ *at exactly equal distances from a Jet, which are ordered by index, and Projectiles whose squared
+ *distances differ while their distances are equal.
+ */
+public class MyFeatureGeneratorTest {
+
+	private static final Color[] COLORS = {Color.BLUE, Color.RED, Color.GREEN};
+
+	@Test
+	public void matchesSortedProjectiles() {
+
+		Random random = new Random(1);
+		ProjectilePool pool = new ProjectilePool(2);
+		MyFeatureGenerator fg = new MyFeatureGenerator();
+		WorldSnapshot world = new WorldSnapshot();
+		double[] features = new double[fg.getNumFeatures()];
+		int ties = 0, nearTies = 0;
+		for (int w=0; w<2000; ++w) {
+			List<Jet> jets = world(random, pool);
+			world.build(jets);
+			for (int i=0; i<jets.size(); ++i) {
+				fg.generate(world, i, features, 0);
+				assertArrayEquals(reference(jets, i), features, 0);
+				ties += countTies(jets, i, false);
+				nearTies += countTies(jets, i, true);
+			}
+		}
+		assertTrue("No Projectiles were at equal distances.", ties > 0);
+		assertTrue("No Projectiles had equal distances with different squares.", nearTies > 0);
+	}
+
+	/**
+	 * Fill pool with a random world and return its Jets. Jets are placed at integer coordinates so that
+	 * mirrored Projectiles are at exactly equal distances from them.
+	 */
+	private static List<Jet> world(Random random, ProjectilePool pool) {
+
+		pool.clear();
+		List<Jet> jets = new ArrayList<Jet>();
+		int numJets = 2 + random.nextInt(5);
+		for (int i=0; i<numJets; ++i) {
+			Point2D loc = new Point2D.Double(random.nextInt(501) - 250, random.nextInt(501) - 250);
+			int team = random.nextInt(COLORS.length);
+			jets.add(new Jet(loc, team, COLORS[team], 10, pool, i));
+		}
+
+		//Projectiles on a circle about a Jet have squared distances which differ only by rounding
+		double radius = 5 + 100 * random.nextDouble();
+		int n = random.nextInt(30);
+		for (int p=0; p<n; ++p) {
+			int owner = random.nextInt(numJets);
+			Jet target = jets.get(random.nextInt(numJets));
+			switch (random.nextInt(4)) {
+			case 0:
+				add(jets, pool, owner, 500 * random.nextDouble() - 250, 500 * random.nextDouble() - 250);
+				break;
+			case 1:
+				double theta = 2 * Math.PI * random.nextDouble();
+				add(jets, pool, owner, target.getX() + radius * Math.cos(theta), target.getY() + radius * Math.sin(theta));
+				break;
+			case 2:
+				int dx = random.nextInt(41) - 20, dy = random.nextInt(41) - 20;
+				add(jets, pool, owner, target.getX() + dx, target.getY() + dy);
+				add(jets, pool, random.nextInt(numJets), target.getX() - dx, target.getY() + dy);
+				add(jets, pool, random.nextInt(numJets), target.getX() + dy, target.getY() - dx);
+				break;
+			default:
+				if (pool.size() == 0) break;
+				int q = random.nextInt(pool.size());
+				add(jets, pool, owner, pool.getX(q), pool.getY(q));
+			}
+		}
+		return jets;
+	}
+
+	/**
+	 * Add a resting Projectile of Jet owner to pool at (x, y)
+	 */
+	private static void add(List<Jet> jets, ProjectilePool pool, int owner, double x, double y) {
+		pool.add(owner, jets.get(owner).getTeam(), x, y, 0, 0);
+	}
+
+	/**
+	 * Return the number of pairs of enemy Projectiles of Jet index at equal distances from it, counting
+	 * only pairs whose squared distances differ if near is True, or only pairs whose squared distances
+	 * are equal otherwise
+	 */
+	private static int countTies(List<Jet> jets, int index, boolean near) {
+		Jet j = jets.get(index);
+		ProjectilePool pool = j.getProjectilePool();
+		List<Double> dist2 = new ArrayList<Double>();
+		for (int i=0; i<pool.size(); ++i) {
+			if (jets.get(pool.getOwner(i)).getTeam() == j.getTeam()) continue;
+			double xDiff = pool.getX(i) - j.getX();
+			double yDiff = pool.getY(i) - j.getY();
+			dist2.add(xDiff * xDiff + yDiff * yDiff);
+		}
+		int count = 0;
+		for (int a=0; a<dist2.size(); ++a) {
+			for (int b=a+1; b<dist2.size(); ++b) {
+				double da = dist2.get(a), db = dist2.get(b);
+				if (Math.sqrt(da) == Math.sqrt(db) && (da != db) == near) count += 1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Return the features of Jet index as generated by the original implementation
+	 */
+	private static double[] reference(List<Jet> jets, int index) {
+
+		Jet j = jets.get(index);
+		double[] features = new double[7];
+		Arrays.fill(features, Double.NaN);
+
+		ProjectilePool projectiles = j.getProjectilePool();
+		int[] sorted = sortedProjectiles(jets, j);
+
+		for (int k=0; k<Math.min(sorted.length, 3); ++k) {
+			double px = projectiles.getX(sorted[k]);
+			double py = projectiles.getY(sorted[k]);
+			features[2*k] = Angle.normalize(j.angleTo(px, py) - j.angleToOrigin());
+			features[2*k + 1] = j.distanceTo(px, py);
+		}
+		features[6] = j.distanceToOrigin();
+		return features;
+	}
+
+	/**
+	 * Return the indices of the enemy Projectiles of Jet j, sorted by distance from j and by index
+	 * among equal distances, as the original implementation sorted them
+	 */
+	private static int[] sortedProjectiles(List<Jet> jets, Jet j) {
+
+		ProjectilePool pool = j.getProjectilePool();
+		List<Integer> projectiles = new ArrayList<Integer>();
+		for (int i=0; i<pool.size(); ++i) {
+			if (jets.get(pool.getOwner(i)).getTeam() != j.getTeam()) projectiles.add(i);
+		}
+
+		Map<Double,ArrayList<Integer>> distances = new HashMap<Double,ArrayList<Integer>>();
+		for (int p: projectiles) {
+			double xDiff = pool.getX(p) - j.getX();
+			double yDiff = pool.getY(p) - j.getY();
+			double distance = Math.sqrt(Math.pow(xDiff, 2) + Math.pow(yDiff, 2));
+			if (distances.get(distance) == null) distances.put(distance, new ArrayList<Integer>());
+			distances.get(distance).add(p);
+		}
+
+		List<Double> keys = new ArrayList<Double>(distances.keySet());
+		Collections.sort(keys);
+
+		int i = 0;
+		int[] sorted = new int[projectiles.size()];
+		for (Double d: keys) {
+			for (int p: distances.get(d)) sorted[i++] = p;
+		}
+		return sorted;
+	}
+
+}
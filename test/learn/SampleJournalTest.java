@@ -0,0 +1,191 @@
+package learn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *Checks that a SampleJournal replays exactly the committed Samples after it is reopened, ignores records
+ *which were never committed, and keeps only the stored Samples when compacted.
+ */
+public class SampleJournalTest {
+
+	private static final String[] LABELS = {"0.0", "1.5707963267948966", "NaN"};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final Random random = new Random(1);
+
+	@Test
+	public void replaysCommittedSamples() throws IOException {
+
+		File file = folder.newFile("samples.journal");
+		Samples first = round(30), second = round(40);
+		SampleJournal journal = new SampleJournal(file);
+		journal.append(first);
+		journal.commit();
+		journal.append(second);
+		journal.commit();
+		assertEquals(70, journal.getRecords());
+		journal.close();
+
+		Samples expected = new Samples(100);
+		expected.addSamples(first);
+		expected.addSamples(second);
+		assertSame(expected, replay(file, 1000));
+	}
+
+	@Test
+	public void ignoresUncommittedSamples() throws IOException {
+
+		File file = folder.newFile("samples.journal");
+		Samples committed = round(30);
+		SampleJournal journal = new SampleJournal(file);
+		journal.append(committed);
+		journal.commit();
+		journal.append(round(40));
+		journal.close();
+		assertSame(committed, replay(file, 1000));
+
+		//Samples appended after reopening replace the uncommitted records
+		Samples later = round(20);
+		journal = new SampleJournal(file);
+		assertEquals(30, journal.getRecords());
+		journal.append(later);
+		journal.commit();
+		journal.close();
+
+		Samples expected = new Samples(100);
+		expected.addSamples(committed);
+		expected.addSamples(later);
+		assertSame(expected, replay(file, 1000));
+	}
+
+	@Test
+	public void ignoresPartialRecordAfterCommit() throws IOException {
+
+		File file = folder.newFile("samples.journal");
+		Samples committed = round(30);
+		SampleJournal journal = new SampleJournal(file);
+		journal.append(committed);
+		journal.commit();
+		long length = journal.getLength();
+		journal.close();
+
+		//A record cut short by a crash follows the committed records
+		RandomAccessFile f = new RandomAccessFile(file, "rw");
+		f.seek(length);
+		f.writeInt(1);
+		f.writeDouble(3.5);
+		f.setLength(length + 12);
+		f.close();
+		assertSame(committed, replay(file, 1000));
+	}
+
+	@Test
+	public void rejectsTruncatedCommittedRecords() throws IOException {
+
+		File file = folder.newFile("samples.journal");
+		SampleJournal journal = new SampleJournal(file);
+		journal.append(round(30));
+		journal.commit();
+		long length = journal.getLength();
+		journal.close();
+
+		RandomAccessFile f = new RandomAccessFile(file, "rw");
+		f.setLength(length - 20);
+		f.close();
+		try {
+			new SampleJournal(file).close();
+			fail("Journal with truncated committed records was opened.");
+		}
+		catch (IOException e) {}
+	}
+
+	@Test
+	public void compactionKeepsStoredSamples() throws IOException {
+
+		File file = folder.newFile("samples.journal");
+		Samples stored = new Samples(50);
+		SampleJournal journal = new SampleJournal(file);
+		for (int r=0; r<10 && !journal.needsCompaction(stored); ++r) {
+			Samples round = round(20);
+			stored.addSamples(round);
+			journal.append(round);
+			journal.commit();
+		}
+		assertTrue(journal.needsCompaction(stored));
+		assertEquals(50, stored.size());
+		long length = journal.getLength();
+
+		journal.compact(stored);
+		assertEquals(50, journal.getRecords());
+		assertTrue(journal.getLength() < length);
+		assertFalse(journal.needsCompaction(stored));
+		assertFalse(new File(file.getPath() + ".compact").exists());
+
+		//The compacted journal is still appended to
+		Samples round = round(10);
+		stored.addSamples(round);
+		journal.append(round);
+		journal.commit();
+		assertEquals(60, journal.getRecords());
+		journal.close();
+		assertSame(stored, replay(file, stored.getCapacity()));
+	}
+
+	/**
+	 * Return a round of n Samples with random features, some of them missing, and random labels
+	 */
+	private Samples round(int n) {
+		Samples round = new Samples(n);
+		for (int i=0; i<n; ++i) {
+			double[] features = new double[7];
+			for (int k=0; k<features.length; ++k) features[k] = random.nextInt(10) == 0 ? Double.NaN : 500 * random.nextDouble();
+			round.addSample(features, LABELS[random.nextInt(LABELS.length)]);
+		}
+		return round;
+	}
+
+	/**
+	 * Return the Samples replayed from the journal in file into Samples of capacity
+	 */
+	private static Samples replay(File file, int capacity) throws IOException {
+		Samples samples = new Samples(capacity);
+		SampleJournal journal = new SampleJournal(file);
+		try {
+			journal.replay(samples);
+		}
+		finally {
+			journal.close();
+		}
+		return samples;
+	}
+
+	/**
+	 * Check that actual stores the same Samples as expected, in the same order
+	 */
+	private static void assertSame(Samples expected, Samples actual) {
+		assertEquals(expected.size(), actual.size());
+		Iterator<Sample> a = actual.iterator();
+		for (Sample e: expected) {
+			Sample s = a.next();
+			assertArrayEquals(e.getFeatures(), s.getFeatures(), 0);
+			assertEquals(e.getLabel(), s.getLabel());
+		}
+	}
+
+}